@@ -0,0 +1,34 @@
+package players;
+
+import tools.ReferencePositions;
+
+/**
+ * The checked-in reference positions (see tools.ReferencePositions), grouped
+ * by game phase and converted into the forms the benchmarks need.
+ */
+final class BenchmarkPositions {
+	final Position[] positions;
+	final byte[][][] racks; // the same positions, as racks
+	final byte[] sides;     // the side to move in each
+
+	/**
+	 * Loads the positions of one game phase.
+	 * @param phase "OPENING", "MIDGAME" or "ENDGAME"
+	 */
+	BenchmarkPositions(String phase) {
+		String[] moves;
+		if (phase.equals("OPENING")) moves = ReferencePositions.OPENING;
+		else if (phase.equals("MIDGAME")) moves = ReferencePositions.MIDGAME;
+		else if (phase.equals("ENDGAME")) moves = ReferencePositions.ENDGAME;
+		else throw new IllegalArgumentException("Unknown phase " +phase);
+
+		positions = new Position[moves.length];
+		racks = new byte[moves.length][][];
+		sides = new byte[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			positions[i] = Position.fromMoves(moves[i]);
+			sides[i] = (byte)((positions[i].getMoves() % 2 == 0) ? 1 : -1);
+			racks[i] = positions[i].toRack(sides[i]);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package players;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the heuristic: the rack scan in
+ * ComputerConnectFourPlayer.evaluate() against the IncrementalEvaluator,
+ * both scoring from scratch and updating after a move. Each operation
+ * covers every position of the phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+	@Param({"OPENING", "MIDGAME", "ENDGAME"})
+	public String phase;
+
+	private BenchmarkPositions suite;
+	private ComputerConnectFourPlayer[] players;
+	private IncrementalEvaluator[] evaluators;
+
+	@Setup
+	public void setUp() {
+		suite = new BenchmarkPositions(phase);
+		int count = suite.positions.length;
+		players = new ComputerConnectFourPlayer[count];
+		evaluators = new IncrementalEvaluator[count];
+		for (int i = 0; i < count; i++) {
+			players[i] = new ComputerConnectFourPlayer(1, suite.sides[i], SearchMode.MINIMAX);
+			evaluators[i] = new IncrementalEvaluator(Position.WIDTH, Position.HEIGHT);
+			evaluators[i].reset(suite.positions[i].getCurrent(), suite.positions[i].getOpponent());
+		}
+	}
+
+	@Benchmark
+	public void rackEvaluate(Blackhole blackhole) {
+		for (int i = 0; i < players.length; i++) {
+			blackhole.consume(players[i].evaluate(suite.racks[i]));
+		}
+	}
+
+	@Benchmark
+	public void incrementalFromScratch(Blackhole blackhole) {
+		for (int i = 0; i < evaluators.length; i++) {
+			Position position = suite.positions[i];
+			evaluators[i].reset(position.getCurrent(), position.getOpponent());
+			blackhole.consume(evaluators[i].evaluate());
+		}
+	}
+
+	// what the search does at each child: add a stone, score, take it back
+	@Benchmark
+	public void incrementalPerMove(Blackhole blackhole) {
+		for (int i = 0; i < evaluators.length; i++) {
+			Position position = suite.positions[i];
+			for (int c = 0; c < position.getWidth(); c++) {
+				if (!position.canPlay(c)) continue;
+				int cell = c*position.getStride() + position.getHeight(c);
+				evaluators[i].add(cell, true);
+				blackhole.consume(evaluators[i].evaluate());
+				evaluators[i].remove(cell, true);
+			}
+		}
+	}
+}
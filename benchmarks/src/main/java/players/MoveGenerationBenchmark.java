@@ -0,0 +1,56 @@
+package players;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of generating every child of a position: actions() and result() on
+ * the rack against play()/undo() on a Position. Each operation covers every
+ * position of the phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+	@Param({"OPENING", "MIDGAME", "ENDGAME"})
+	public String phase;
+
+	private BenchmarkPositions suite;
+	private ComputerConnectFourPlayer[] players;
+
+	@Setup
+	public void setUp() {
+		suite = new BenchmarkPositions(phase);
+		players = new ComputerConnectFourPlayer[suite.racks.length];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = new ComputerConnectFourPlayer(1, suite.sides[i], SearchMode.MINIMAX);
+		}
+	}
+
+	@Benchmark
+	public void rackActionsAndResults(Blackhole blackhole) {
+		for (int i = 0; i < players.length; i++) {
+			byte[][] rack = suite.racks[i];
+			for (int column : players[i].actions(rack)) {
+				blackhole.consume(players[i].result(rack, column, suite.sides[i]));
+			}
+		}
+	}
+
+	@Benchmark
+	public void positionPlayUndo(Blackhole blackhole) {
+		for (Position position : suite.positions) {
+			for (int c = 0; c < position.getWidth(); c++) {
+				if (!position.canPlay(c)) continue;
+				position.play(c);
+				blackhole.consume(position.key());
+				position.undo(c);
+			}
+		}
+	}
+}
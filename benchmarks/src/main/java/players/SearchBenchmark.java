@@ -0,0 +1,58 @@
+package players;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Latency of a full getNextPlay() by the default (alpha-beta) player, at
+ * each depth. Before every call the transposition table is cleared and the
+ * players forget the killer moves and history counts of the last call, so
+ * each search starts cold. The players themselves are made once per trial,
+ * so that building their evaluators and buffers is neither timed nor
+ * counted in the allocation rate. Each operation plays one move in every
+ * position of the phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+	@Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10"})
+	public int depth;
+
+	@Param({"OPENING", "MIDGAME", "ENDGAME"})
+	public String phase;
+
+	private BenchmarkPositions suite;
+	private ComputerConnectFourPlayer[] players;
+	private TranspositionTable table;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		suite = new BenchmarkPositions(phase);
+		table = new TranspositionTable();
+		players = new ComputerConnectFourPlayer[suite.racks.length];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = new ComputerConnectFourPlayer(depth, suite.sides[i]);
+			players[i].setTranspositionTable(table); // before the first search, so the player makes no table of its own
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void startCold() {
+		table.clear();
+		for (ComputerConnectFourPlayer player : players) player.resetMoveOrdering();
+	}
+
+	@Benchmark
+	public int getNextPlay() {
+		int columns = 0;
+		for (int i = 0; i < players.length; i++) {
+			columns += players[i].getNextPlay(suite.racks[i]);
+		}
+		return columns;
+	}
+}
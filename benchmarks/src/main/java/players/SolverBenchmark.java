@@ -0,0 +1,46 @@
+package players;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Latency of solving each position of a phase exactly. One solver is kept
+ * for the whole run, as a player keeps one for a game; its table is emptied
+ * before every call, outside the measurement, so each solve starts cold but
+ * pays nothing to allocate or zero the table. The opening positions take
+ * seconds each, so only the later phases are measured by default.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+	@Param({"MIDGAME", "ENDGAME"})
+	public String phase;
+
+	private BenchmarkPositions suite;
+	private Solver solver;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		suite = new BenchmarkPositions(phase);
+		solver = new Solver();
+	}
+
+	@Setup(Level.Invocation)
+	public void clearTable() {
+		solver.reset();
+	}
+
+	@Benchmark
+	public int bestMove() {
+		int columns = 0;
+		for (Position position : suite.positions) {
+			columns += solver.bestMove(position);
+		}
+		return columns;
+	}
+}
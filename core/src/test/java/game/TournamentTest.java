@@ -0,0 +1,45 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import players.ComputerConnectFourPlayer;
+import players.SearchMode;
+
+class TournamentTest {
+	private static final int THREADS = 16;
+
+	@Test
+	void everyPairPlaysEveryGame() {
+		TournamentResult result = tournament(4, 5, 4).run(6);
+		assertEquals(3*6, result.getGameCount());
+	}
+
+	@Test
+	void manyThreadsFitInASmallHeap() throws Exception {
+		// each thread makes its own players, so a table per player would need gigabytes
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process process = new ProcessBuilder(java, "-Xmx160m", "-cp", System.getProperty("java.class.path"), TournamentTest.class.getName())
+				.inheritIO()
+				.start();
+		assertTrue(process.waitFor(5, TimeUnit.MINUTES), "The tournament didn't finish");
+		assertEquals(0, process.exitValue());
+	}
+
+	// plays a tournament on many threads, to be run in a JVM with a bounded heap
+	public static void main(String[] args) {
+		tournament(THREADS, 5, 4).run(4*THREADS);
+	}
+
+	// two searching entrants and a perfect one
+	private static Tournament tournament(int threads, int width, int height) {
+		Tournament tournament = new Tournament(threads, width, height);
+		tournament.addPlayer("depth 2", side -> new ComputerConnectFourPlayer(2, side));
+		tournament.addPlayer("depth 4", side -> new ComputerConnectFourPlayer(4, side, SearchMode.ITERATIVE_DEEPENING));
+		tournament.addPlayer("perfect", side -> new ComputerConnectFourPlayer(1, side, SearchMode.SOLVE));
+		return tournament;
+	}
+}
@@ -0,0 +1,57 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class BatchSearchTest {
+	@Test
+	void playsLikeSeparatePlayers() {
+		assertPlaysLikePlayers(new BatchSearch(4, 6, SearchMode.ALPHA_BETA, new TranspositionTable()), 6, 7, 6, 4);
+	}
+
+	@Test
+	void playsLikeSeparatePlayersOnOtherBoards() {
+		assertPlaysLikePlayers(new BatchSearch(4, 5, SearchMode.ALPHA_BETA, new TranspositionTable(), 8, 7, 5), 5, 8, 7, 5);
+		assertPlaysLikePlayers(new BatchSearch(4, 5, SearchMode.ALPHA_BETA, new TranspositionTable(), 6, 5, 3), 5, 6, 5, 3);
+	}
+
+	@Test
+	void refusesOtherBoards() {
+		BatchSearch batch = new BatchSearch(2, 4);
+		try {
+			assertThrows(IllegalArgumentException.class, () -> batch.submit(new Position(8, 7), 0));
+			assertThrows(IllegalArgumentException.class, () -> batch.submit(new Position(7, 6, 5), 0));
+			assertThrows(IllegalArgumentException.class, () -> batch.submit(new byte[7][8], (byte)1, 0));
+			assertEquals(3, batch.submit(new Position(), 0).join().getColumn());
+		}
+		finally {
+			batch.shutdown();
+		}
+		assertThrows(IllegalArgumentException.class, () -> new BatchSearch(1, 4, SearchMode.ALPHA_BETA, null, 9, 7, 4));
+	}
+
+	// searches random positions in a batch and with a player of the same depth, which must pick the same columns
+	private static void assertPlaysLikePlayers(BatchSearch batch, int depth, int width, int height, int connect) {
+		try {
+			Random random = new Random(width*100 + height*10 + connect);
+			List<Position> positions = new ArrayList<Position>();
+			for (int i = 0; i < 200; i++) positions.add(TestPositions.random(random, width, height, connect, random.nextInt(width*height/2)));
+			List<CompletableFuture<SearchResult>> results = batch.submitAll(positions, new long[positions.size()]);
+
+			ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(depth, (byte)1, SearchMode.ALPHA_BETA);
+			player.setConnectLength(connect);
+			for (int i = 0; i < positions.size(); i++) {
+				Position position = positions.get(i);
+				assertEquals(player.getNextPlay(position.toRack(1)), results.get(i).join().getColumn(), position.toString());
+			}
+		}
+		finally {
+			batch.shutdown();
+		}
+	}
+}
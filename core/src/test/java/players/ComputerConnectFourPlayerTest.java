@@ -0,0 +1,142 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The player on racks too big for a bitboard, which it searches rack by rack,
+ * and its pondering on the opponent's time.
+ */
+class ComputerConnectFourPlayerTest {
+	@Test
+	void alphaBetaPlaysLikeMinimaxOnBigRacks() {
+		Random random = new Random(12);
+		int compared = 0;
+		for (int i = 0; i < 40; i++) {
+			byte[][] rack = randomRack(random, 9, 7, 4, random.nextInt(30));
+			ComputerConnectFourPlayer minimax = new ComputerConnectFourPlayer(4, (byte)1, SearchMode.MINIMAX);
+			ComputerConnectFourPlayer alphaBeta = new ComputerConnectFourPlayer(4, (byte)1, SearchMode.ALPHA_BETA);
+			ComputerConnectFourPlayer deepening = new ComputerConnectFourPlayer(4, (byte)1, SearchMode.ITERATIVE_DEEPENING);
+			int column = minimax.getNextPlay(rack);
+			if (rack[0][column] != 0) continue; // every column loses, and miniMax falls back on a full column 0
+			assertEquals(column, alphaBeta.getNextPlay(rack));
+			assertEquals(column, deepening.getNextPlay(rack));
+			assertTrue(alphaBeta.getNodeCount() < minimax.getNodeCount());
+			compared++;
+		}
+		assertTrue(compared >= 30, "only " +compared+ " racks compared");
+	}
+
+	@Test
+	void keepsTheTimeBudgetOnBigRacks() {
+		byte[][] rack = new byte[8][10];
+		ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(30, (byte)1, SearchMode.ITERATIVE_DEEPENING);
+		player.setConnectLength(5);
+		player.setTimeBudget(50);
+		SearchResult result = player.getNextPlayWithStatistics(rack);
+		SearchStatistics statistics = result.getStatistics();
+		assertTrue(result.getColumn() >= 0 && result.getColumn() < 10);
+		assertTrue(statistics.getCompletedDepth() >= 1 && statistics.getCompletedDepth() < 30);
+		assertTrue(statistics.getElapsedNanos() < 1000000000L, statistics.getElapsedNanos()/1000000 + " ms");
+	}
+
+	@Test
+	void countsItsWorkOnBigRacks() {
+		byte[][] rack = new byte[7][9];
+		ComputerConnectFourPlayer minimax = new ComputerConnectFourPlayer(3, (byte)1, SearchMode.MINIMAX);
+		SearchStatistics statistics = minimax.getNextPlayWithStatistics(rack).getStatistics();
+		assertEquals(1 + 9 + 9*9 + 9*9*9, statistics.getNodes());
+		assertEquals(9*9*9, statistics.getLeafEvaluations());
+		assertEquals(3, statistics.getMaxDepth());
+		assertEquals(0, statistics.getTableHits());
+
+		ComputerConnectFourPlayer alphaBeta = new ComputerConnectFourPlayer(3, (byte)1, SearchMode.ALPHA_BETA);
+		statistics = alphaBeta.getNextPlayWithStatistics(rack).getStatistics();
+		assertTrue(statistics.getLeafEvaluations() > 0 && statistics.getLeafEvaluations() < 9*9*9);
+		assertTrue(statistics.getLeafEvaluations() < statistics.getNodes());
+		assertEquals(3, statistics.getMaxDepth());
+	}
+
+	@Test
+	void refusesToSolveOrPonderBigRacks() {
+		byte[][] rack = new byte[7][9];
+		ComputerConnectFourPlayer solver = new ComputerConnectFourPlayer(1, (byte)1, SearchMode.SOLVE);
+		assertThrows(IllegalArgumentException.class, () -> solver.getNextPlay(rack));
+
+		ComputerConnectFourPlayer ponderer = new ComputerConnectFourPlayer(4, (byte)1);
+		ponderer.setPondering(true);
+		assertThrows(IllegalArgumentException.class, () -> ponderer.getNextPlay(rack));
+		ponderer.setPondering(false);
+		assertTrue(ponderer.getNextPlay(rack) >= 0);
+	}
+
+	@Test
+	void ponderingTheReplyPlayedSavesTheSearch() {
+		TranspositionTable table = new TranspositionTable(16, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		SearchEngine engine = new SearchEngine(8, SearchMode.ALPHA_BETA);
+		engine.setTranspositionTable(table);
+		Ponderer ponderer = new Ponderer(engine.copy());
+
+		Position root = new Position();
+		int column = engine.bestMove(root);
+		ponderer.start(root, column);
+		Position reply = new Position(root);
+		reply.play(column);
+		reply.play(3); // the first reply pondered, so that it is searched to the end whenever it comes
+		ponderer.stop(reply);
+		int move = engine.bestMove(reply);
+
+		SearchEngine fresh = new SearchEngine(8, SearchMode.ALPHA_BETA);
+		fresh.setTranspositionTable(new TranspositionTable(16, TranspositionTable.Replacement.DEPTH_PREFERRED));
+		assertEquals(fresh.bestMove(reply), move);
+		assertTrue(engine.getNodeCount() < fresh.getNodeCount()*2/3, engine.getNodeCount()+ " nodes after pondering, " +fresh.getNodeCount()+ " without");
+	}
+
+	@Test
+	void ponderingAnotherReplyIsThrownAway() throws InterruptedException {
+		TranspositionTable table = new TranspositionTable(16, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		SearchEngine engine = new SearchEngine(20, SearchMode.ALPHA_BETA); // far too deep to finish
+		engine.setTranspositionTable(table);
+		Ponderer ponderer = new Ponderer(engine.copy());
+
+		Position root = new Position();
+		ponderer.start(root, 3);
+		Thread.sleep(50); // well into the search of the center reply
+		Position reply = new Position(root);
+		reply.play(3);
+		reply.play(0);
+		long start = System.nanoTime();
+		ponderer.stop(reply);
+		assertTrue(System.nanoTime() - start < 1000000000L, "the search of another reply wasn't cancelled");
+
+		// whatever the cancelled search left in the table, a search sharing it plays as if it had never run
+		SearchEngine shallow = new SearchEngine(7, SearchMode.ALPHA_BETA);
+		shallow.setTranspositionTable(table);
+		SearchEngine fresh = new SearchEngine(7, SearchMode.ALPHA_BETA);
+		fresh.setTranspositionTable(new TranspositionTable(16, TranspositionTable.Replacement.DEPTH_PREFERRED));
+		assertEquals(fresh.bestMove(reply), shallow.bestMove(reply));
+	}
+
+	// a rack after random moves that win nothing, with side 1 to move
+	private static byte[][] randomRack(Random random, int width, int height, int connect, int moves) {
+		ComputerConnectFourPlayer judge = new ComputerConnectFourPlayer(1, (byte)1, SearchMode.MINIMAX);
+		judge.setConnectLength(connect);
+		byte[][] rack = new byte[height][width];
+		byte side = 1;
+		for (int i = 0; i < moves; i++) {
+			int[] actions = judge.actions(rack);
+			byte[][] next = judge.result(rack, actions[random.nextInt(actions.length)], side);
+			if (judge.terminalTest(next)) continue; // a win: try another move
+			rack = next;
+			side = (byte)(-side);
+		}
+		if (side != 1) { // swap the colors, so that side 1 is to move
+			for (byte[] row : rack) {
+				for (int c = 0; c < width; c++) row[c] = (byte)(-row[c]);
+			}
+		}
+		return rack;
+	}
+}
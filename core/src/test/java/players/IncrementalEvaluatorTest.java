@@ -0,0 +1,102 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IncrementalEvaluatorTest {
+	@Test
+	void scoresLikeTheRackHeuristic() {
+		assertScoresLikeRacks(7, 6, 4, 5);
+	}
+
+	@Test
+	void scoresOtherLineLengthsLikeTheRackHeuristic() {
+		assertScoresLikeRacks(5, 4, 3, 7);
+		assertScoresLikeRacks(6, 7, 3, 8);
+		assertScoresLikeRacks(8, 7, 5, 9);
+		assertScoresLikeRacks(4, 4, 2, 10);
+	}
+
+	@Test
+	void addAndRemoveMatchAReset() {
+		Random random = new Random(6);
+		Position position = new Position();
+		IncrementalEvaluator incremental = new IncrementalEvaluator(7, 6);
+		IncrementalEvaluator fresh = new IncrementalEvaluator(7, 6);
+		incremental.reset(0L, 0L);
+
+		int[] cells = new int[42];
+		boolean ai = true; // the computer moves first, so it is to move when ai is true
+		while (!position.isFull() && !position.lastMoverWon()) {
+			int column;
+			do {
+				column = random.nextInt(7);
+			} while (!position.canPlay(column));
+			cells[position.getMoves()] = column*position.getStride() + position.getHeight(column);
+			incremental.add(cells[position.getMoves()], ai);
+			position.play(column);
+			ai = !ai;
+
+			fresh.reset(ai ? position.getCurrent() : position.getOpponent(), ai ? position.getOpponent() : position.getCurrent());
+			assertEquals(fresh.evaluate(), incremental.evaluate(), position.toString());
+		}
+		for (int i = position.getMoves()-1; i >= 0; i--) incremental.remove(cells[i], i % 2 == 0);
+		assertEquals(0, incremental.evaluate());
+	}
+
+	@Test
+	void parsesWeights() {
+		EvaluationWeights weights = EvaluationWeights.parse("1,10,100");
+		assertEquals("1,10,100,1,10,100,0", weights.toString());
+		assertEquals("1,10,100,1,10,100,7", EvaluationWeights.parse("1, 10, 100, 7").toString());
+		assertEquals("2,20,200,3,30,300,0", EvaluationWeights.parse("2,20,200,3,30,300").toString());
+		weights = EvaluationWeights.parse(" 2,20,200,3,30,300,-5 ");
+		assertEquals(0, weights.own(0));
+		assertEquals(200, weights.own(3));
+		assertEquals(30, weights.opponent(2));
+		assertEquals(-5, weights.parityThreat());
+		assertEquals(weights.toString(), EvaluationWeights.parse(weights.toString()).toString());
+	}
+
+	@Test
+	void rejectsMalformedWeights() {
+		for (String spec : new String[] {"", "1,10", "1,10,100,1,10", "1,10,100,1,10,100,0,0", "1,ten,100", "1,,100", "1;10;100"}) {
+			assertThrows(IllegalArgumentException.class, () -> EvaluationWeights.parse(spec), spec);
+		}
+		assertThrows(IllegalArgumentException.class, () -> new EvaluationWeights(new int[] {1, 10}, new int[] {1, 10, 100}, 0));
+	}
+
+	@Test
+	void scoresWithTheWeightsGiven() {
+		Random random = new Random(17);
+		IncrementalEvaluator single = new IncrementalEvaluator(7, 6, 4, EvaluationWeights.DEFAULT);
+		IncrementalEvaluator doubled = new IncrementalEvaluator(7, 6, 4, EvaluationWeights.parse("2,20,200"));
+		IncrementalEvaluator ownOnly = new IncrementalEvaluator(7, 6, 4, EvaluationWeights.parse("1,10,100,0,0,0"));
+		for (int i = 0; i < 200; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, 1 + random.nextInt(30));
+			single.reset(position.getCurrent(), position.getOpponent());
+			doubled.reset(position.getCurrent(), position.getOpponent());
+			assertEquals(2*single.evaluate(), doubled.evaluate(), position.toString());
+
+			ownOnly.reset(position.getCurrent(), position.getOpponent());
+			assertTrue(ownOnly.evaluate() >= 0, position.toString());
+			ownOnly.reset(0L, position.getOpponent());
+			assertEquals(0, ownOnly.evaluate(), position.toString());
+		}
+	}
+
+	// compares the evaluator with ComputerConnectFourPlayer.evaluate() on random positions of a board
+	static void assertScoresLikeRacks(int width, int height, int connect, long seed) {
+		Random random = new Random(seed);
+		IncrementalEvaluator evaluator = new IncrementalEvaluator(width, height, connect, EvaluationWeights.DEFAULT);
+		ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(1, (byte)1);
+		player.setConnectLength(connect);
+		for (int i = 0; i < 500; i++) {
+			Position position = TestPositions.random(random, width, height, connect, random.nextInt(width*height));
+			evaluator.reset(position.getCurrent(), position.getOpponent());
+			assertEquals(player.evaluate(position.toRack(1)), evaluator.evaluate(), position.toString());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PositionCodecTest {
+	private static final int[][] BOARDS = {{7, 6, 4}, {8, 7, 4}, {9, 6, 4}, {4, 4, 3}, {1, 63, 2}, {32, 1, 2}};
+
+	@Test
+	void moveStringsRoundTrip() {
+		Random random = new Random(20);
+		for (int[] board : BOARDS) {
+			Position into = new Position(board[0], board[1], board[2]);
+			for (int i = 0; i < 100; i++) {
+				int[] columns = new int[board[0]*board[1]];
+				Position position = new Position(board[0], board[1], board[2]);
+				int count = randomGame(random, position, columns);
+				String moves = PositionCodec.appendMoves(columns, count, new StringBuilder()).toString();
+				assertEquals(count, moves.length());
+				assertEquals(position.key(), PositionCodec.decodeMoves(moves, into).key(), moves);
+			}
+		}
+		assertEquals("4453", PositionCodec.appendMoves(new int[] {3, 3, 4, 2}, 4, new StringBuilder()).toString());
+		assertEquals(Position.fromMoves("4453").key(), PositionCodec.decodeMoves("4453", new Position()).key());
+	}
+
+	@Test
+	void keysRoundTrip() {
+		Random random = new Random(21);
+		for (int[] board : BOARDS) {
+			Position into = new Position(board[0], board[1], board[2]);
+			for (int i = 0; i < 100; i++) {
+				Position position = new Position(board[0], board[1], board[2]);
+				randomGame(random, position, new int[board[0]*board[1]]);
+				PositionCodec.decodeKey(position.key(), into);
+				assertEquals(position.key(), into.key());
+				assertEquals(position.getCurrent(), into.getCurrent());
+				assertEquals(position.getMoves(), into.getMoves());
+			}
+		}
+	}
+
+	@Test
+	void bytesRoundTrip() {
+		assertEquals(7, PositionCodec.bytes(7, 6));
+		assertEquals(8, PositionCodec.bytes(8, 7));
+		Random random = new Random(22);
+		for (int[] board : BOARDS) {
+			Position into = new Position(board[0], board[1], board[2]);
+			ByteBuffer buffer = ByteBuffer.allocate(100 * PositionCodec.bytes(board[0], board[1]));
+			long[] keys = new long[100];
+			for (int i = 0; i < keys.length; i++) {
+				Position position = new Position(board[0], board[1], board[2]);
+				randomGame(random, position, new int[board[0]*board[1]]);
+				keys[i] = position.key();
+				PositionCodec.write(position, buffer);
+			}
+			assertEquals(buffer.capacity(), buffer.position());
+			buffer.flip();
+			for (long key : keys) assertEquals(key, PositionCodec.read(buffer, into).key());
+			assertThrows(BufferUnderflowException.class, () -> PositionCodec.read(buffer, into));
+		}
+	}
+
+	@Test
+	void rejectsMalformedInput() {
+		Position into = new Position();
+		assertThrows(IllegalArgumentException.class, () -> PositionCodec.decodeMoves("8", into));
+		assertThrows(IllegalArgumentException.class, () -> PositionCodec.decodeMoves("1111111", into));
+		assertThrows(IllegalArgumentException.class, () -> PositionCodec.decodeMoves("4x", into));
+		assertThrows(IllegalArgumentException.class, () -> PositionCodec.decodeKey(0L, into));
+		assertThrows(IllegalArgumentException.class, () -> PositionCodec.decodeKey(1L << 50, into));
+	}
+
+	// plays random moves until the game ends or a random point, recording the columns; returns the count
+	private static int randomGame(Random random, Position position, int[] columns) {
+		int stop = random.nextInt(columns.length + 1);
+		int count = 0;
+		while (count < stop && !position.isFull()) {
+			int column = random.nextInt(position.getWidth());
+			if (!position.canPlay(column)) continue;
+			if (position.isWinningMove(column)) break;
+			position.play(column);
+			columns[count++] = column;
+		}
+		return count;
+	}
+}
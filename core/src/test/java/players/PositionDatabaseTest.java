@@ -0,0 +1,139 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import tools.OpeningBookGenerator;
+import tools.TablebaseGenerator;
+
+class PositionDatabaseTest {
+	@Test
+	void readsBackWhatWasWritten() throws IOException {
+		PositionDatabase.Builder builder = new PositionDatabase.Builder(7, 6, 4, true);
+		builder.put(Position.fromMoves("1123"), -3, 1);
+		builder.put(Position.fromMoves("44"), 5, 3);
+		builder.put(Position.fromMoves("7"), 0, -1);
+		PositionDatabase database = writeAndOpen(builder);
+
+		assertEquals(3, database.size());
+		assertTrue(database.isExact());
+		assertEquals(41, database.getMaxEmpty());
+		assertEquals(7, database.getWidth());
+		assertEquals(6, database.getHeight());
+		assertEquals(4, database.getConnect());
+
+		int entry = database.probe(Position.fromMoves("1123"));
+		assertEquals(-3, PositionDatabase.score(entry));
+		assertEquals(1, PositionDatabase.move(entry));
+		entry = database.probe(Position.fromMoves("44"));
+		assertEquals(5, PositionDatabase.score(entry));
+		assertEquals(3, PositionDatabase.move(entry));
+
+		// a mirror image finds the same entry, with its move mirrored
+		entry = database.probe(Position.fromMoves("7765"));
+		assertEquals(-3, PositionDatabase.score(entry));
+		assertEquals(5, PositionDatabase.move(entry));
+		entry = database.probe(Position.fromMoves("1"));
+		assertEquals(0, PositionDatabase.score(entry));
+		assertEquals(-1, PositionDatabase.move(entry));
+
+		assertEquals(PositionDatabase.NOT_FOUND, database.probe(Position.fromMoves("1124")));
+		assertEquals(PositionDatabase.NOT_FOUND, database.probe(new Position()));
+		assertEquals(PositionDatabase.NOT_FOUND, database.probe(Position.fromMoves("4").canonicalKey() ^ 1));
+		assertEquals(PositionDatabase.NOT_FOUND, database.probe(new Position(8, 7, 4)));
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		Path file = Files.createTempFile("positions", ".db");
+		try {
+			new PositionDatabase.Builder(7, 6, 4, false).write(file);
+			byte[] bytes = Files.readAllBytes(file);
+			PositionDatabase.open(file).probe(new Position()); // an empty database is fine
+
+			ByteBuffer.wrap(bytes).putInt(4, 2);
+			Files.write(file, bytes);
+			assertThrows(IOException.class, () -> PositionDatabase.open(file));
+
+			Files.write(file, new byte[] {'C', '4'});
+			assertThrows(IOException.class, () -> PositionDatabase.open(file));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void playsTheBookMove() throws IOException {
+		PositionDatabase.Builder builder = new PositionDatabase.Builder(7, 6, 4, false);
+		builder.put(Position.fromMoves("43"), 0, 0); // a poor move, which no search would pick
+		PositionDatabase book = writeAndOpen(builder);
+
+		ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(6, (byte)1);
+		assertNotEquals(0, player.getNextPlay(Position.fromMoves("43").toRack(1)));
+		player.setOpeningBook(book);
+		assertEquals(0, player.getNextPlay(Position.fromMoves("43").toRack(1)));
+		assertEquals(1, player.getNodeCount());
+		assertEquals(6, player.getNextPlay(Position.fromMoves("45").toRack(1))); // the mirror image
+	}
+
+	@Test
+	void scoresPositionsFromTheTablebase() throws IOException {
+		// claims that after "43" a stone in column 7 wins, by storing its mirror image as lost for the side to move
+		PositionDatabase.Builder builder = new PositionDatabase.Builder(7, 6, 4, true);
+		builder.put(Position.fromMoves("451"), -5, -1);
+		PositionDatabase tablebase = writeAndOpen(builder);
+		byte[][] rack = Position.fromMoves("43").toRack(1);
+
+		ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(2, (byte)1);
+		assertNotEquals(6, player.getNextPlay(rack));
+		player.setTablebase(tablebase);
+		assertEquals(6, player.getNextPlay(rack));
+
+		PositionDatabase.Builder inexact = new PositionDatabase.Builder(7, 6, 4, false);
+		PositionDatabase book = writeAndOpen(inexact);
+		assertThrows(IllegalArgumentException.class, () -> player.setTablebase(book));
+	}
+
+	@Test
+	void generatedDatabasesHoldSolverScores() throws IOException {
+		Position board = new Position(5, 4, 4);
+		PositionDatabase book = writeAndOpen(OpeningBookGenerator.generate(board, 3, 0, 2));
+		PositionDatabase tablebase = writeAndOpen(TablebaseGenerator.generate(board, 10, 5, 2, 1));
+		assertTrue(book.isExact() && tablebase.isExact());
+		assertEquals(10, tablebase.getMaxEmpty());
+
+		Random random = new Random(13);
+		Solver solver = new Solver();
+		int found = 0;
+		for (int i = 0; i < 200; i++) {
+			Position position = TestPositions.random(random, 5, 4, 4, random.nextBoolean() ? random.nextInt(4) : 10 + random.nextInt(9));
+			for (PositionDatabase database : new PositionDatabase[] {book, tablebase}) {
+				int entry = database.probe(position);
+				if (entry == PositionDatabase.NOT_FOUND) continue;
+				found++;
+				int[] scores = solver.analyze(position);
+				assertEquals(solver.solve(position), PositionDatabase.score(entry), position.toString());
+				assertEquals(solver.solve(position), scores[PositionDatabase.move(entry)], position.toString());
+			}
+		}
+		assertTrue(found >= 100, "only " +found+ " positions found");
+	}
+
+	// writes a database to a temporary file and maps it back
+	private static PositionDatabase writeAndOpen(PositionDatabase.Builder builder) throws IOException {
+		Path file = Files.createTempFile("positions", ".db");
+		try {
+			builder.write(file);
+			return PositionDatabase.open(file); // the mapping outlives the file
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PositionTest {
+	@Test
+	void perftMatchesKnownCounts() {
+		long[] expected = {1, 7, 49, 343, 2401, 16807, 117649, 823536};
+		for (int depth = 0; depth < expected.length; depth++) {
+			assertEquals(expected[depth], Perft.perft(new Position(), depth), "perft(" +depth+ ")");
+		}
+	}
+
+	@Test
+	void undoRestoresThePosition() {
+		Position position = Position.fromMoves("4453");
+		long key = position.key();
+		for (int c = 0; c < position.getWidth(); c++) {
+			position.play(c);
+			assertNotEquals(key, position.key());
+			position.undo(c);
+			assertEquals(key, position.key());
+		}
+		assertEquals(4, position.getMoves());
+	}
+
+	@Test
+	void findsLinesInEveryDirection() {
+		assertTrue(Position.fromMoves("121212").isWinningMove(0), "vertical");
+		assertTrue(Position.fromMoves("112233").isWinningMove(3), "horizontal");
+		assertTrue(Position.fromMoves("1223433447").isWinningMove(3), "ascending");
+		assertTrue(Position.fromMoves("7665455441").isWinningMove(3), "descending");
+		assertFalse(Position.fromMoves("121212").isWinningMove(1));
+
+		Position won = Position.fromMoves("1212121");
+		assertTrue(won.lastMoverWon());
+	}
+
+	@Test
+	void findsLinesOfOtherLengths() {
+		Position three = PositionCodec.decodeMoves("1122", new Position(5, 4, 3));
+		assertTrue(three.isWinningMove(2));
+		Position five = PositionCodec.decodeMoves("11223344", new Position(8, 7, 5));
+		assertTrue(five.isWinningMove(4));
+		assertFalse(five.isWinningMove(5));
+	}
+
+	@Test
+	void nonLosingMovesAreThoseTheOpponentCantAnswerWithAWin() {
+		Random random = new Random(16);
+		int[][] boards = {{7, 6, 4}, {5, 4, 3}, {8, 7, 5}};
+		for (int[] board : boards) {
+			for (int i = 0; i < 500; i++) {
+				Position position = TestPositions.random(random, board[0], board[1], board[2], random.nextInt(board[0]*board[1]));
+				if (position.canWinNext()) continue; // nonLosingMoves assumes there is no win at once
+				long nonLosing = position.nonLosingMoves();
+				for (int c = 0; c < position.getWidth(); c++) {
+					if (!position.canPlay(c)) continue;
+					position.play(c);
+					boolean loses = position.canWinNext();
+					position.undo(c);
+					assertEquals(!loses, (nonLosing & position.columnMask(c)) != 0, "column " +c+ "\n" +position);
+				}
+			}
+		}
+	}
+
+	@Test
+	void rackRoundTrips() {
+		Random random = new Random(1);
+		for (int i = 0; i < 200; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, random.nextInt(40));
+			byte[][] rack = position.toRack(1);
+			assertEquals(position.key(), Position.fromRack(rack, 1).key());
+		}
+	}
+
+	@Test
+	void mirroredPositionsShareACanonicalKey() {
+		Position left = Position.fromMoves("1123");
+		Position right = Position.fromMoves("7765");
+		assertEquals(left.mirrorKey(), right.key());
+		assertEquals(left.canonicalKey(), right.canonicalKey());
+		assertTrue(Position.fromMoves("44").isSymmetric());
+	}
+
+	@Test
+	void rejectsBoardsTooBigForABitboard() {
+		assertTrue(Position.fits(7, 6));
+		assertTrue(Position.fits(8, 7));
+		assertFalse(Position.fits(9, 7));
+		assertThrows(IllegalArgumentException.class, () -> new Position(9, 7));
+	}
+}
@@ -0,0 +1,214 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the bitboard search against the rack-based one it replaced. The
+ * engine may break ties differently, e.g. by winning at once where the rack
+ * search wins a few plies later, so each column it picks must have the
+ * minimax value of the best column rather than be the same column.
+ */
+class SearchEngineTest {
+	private static final int DEPTH = 4;
+
+	@Test
+	void minimaxPicksAMoveOfTheBestValue() {
+		Random random = new Random(2);
+		for (int i = 0; i < 100; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, random.nextInt(30));
+			byte side = (byte)(random.nextBoolean() ? 1 : -1);
+			ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(DEPTH, side, SearchMode.MINIMAX);
+			assertBestValue(player, position.toRack(side), side, player.getNextPlay(position.toRack(side)));
+		}
+	}
+
+	@Test
+	void leavingOutLosingMovesKeepsTheValue() {
+		Random random = new Random(10);
+		int threatened = 0;
+		for (int i = 0; i < 200 && threatened < 60; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, 10 + random.nextInt(25));
+			if (position.opponentThreats() == 0 && position.winningMoves() == 0) continue; // nothing to leave out near the root
+			threatened++;
+			for (SearchMode mode : new SearchMode[] {SearchMode.MINIMAX, SearchMode.ALPHA_BETA}) {
+				ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(DEPTH, (byte)1, mode);
+				assertBestValue(player, position.toRack(1), (byte)1, player.getNextPlay(position.toRack(1)));
+			}
+		}
+		assertTrue(threatened >= 30, "only " +threatened+ " positions with threats");
+	}
+
+	@Test
+	void alphaBetaPlaysLikeMinimax() {
+		Random random = new Random(3);
+		long minimaxNodes = 0, alphaBetaNodes = 0;
+		for (int i = 0; i < 60; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, random.nextInt(30));
+			byte[][] rack = position.toRack(1);
+			ComputerConnectFourPlayer minimax = new ComputerConnectFourPlayer(5, (byte)1, SearchMode.MINIMAX);
+			ComputerConnectFourPlayer alphaBeta = new ComputerConnectFourPlayer(5, (byte)1, SearchMode.ALPHA_BETA);
+			assertEquals(minimax.getNextPlay(rack), alphaBeta.getNextPlay(rack), position.toString());
+			minimaxNodes += minimax.getNodeCount();
+			alphaBetaNodes += alphaBeta.getNodeCount();
+		}
+		assertTrue(alphaBetaNodes < minimaxNodes / 5, alphaBetaNodes+ " nodes with alpha-beta, " +minimaxNodes+ " without");
+	}
+
+	@Test
+	void parallelSearchPlaysLikeOneThread() {
+		Random random = new Random(4);
+		for (int i = 0; i < 60; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, random.nextInt(30));
+			byte[][] rack = position.toRack(1);
+			ComputerConnectFourPlayer single = new ComputerConnectFourPlayer(7, (byte)1, SearchMode.ALPHA_BETA);
+			ComputerConnectFourPlayer parallel = new ComputerConnectFourPlayer(7, (byte)1, SearchMode.ALPHA_BETA);
+			parallel.setThreads(3);
+			assertEquals(single.getNextPlay(rack), parallel.getNextPlay(rack), position.toString());
+		}
+	}
+
+	@Test
+	void mirrorImagesShareTableEntries() {
+		Random random = new Random(9);
+		long freshNodes = 0, reusedNodes = 0;
+		for (int i = 0; i < 40; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, random.nextInt(20));
+			if (position.isSymmetric()) continue;
+			Position mirror = PositionCodec.decodeKey(position.mirrorKey(), new Position());
+			ComputerConnectFourPlayer reused = new ComputerConnectFourPlayer(7, (byte)1);
+			reused.getNextPlay(position.toRack(1));
+			reused.resetMoveOrdering(); // so that only the table carries over
+			int column = reused.getNextPlay(mirror.toRack(1));
+
+			ComputerConnectFourPlayer fresh = new ComputerConnectFourPlayer(7, (byte)1);
+			assertEquals(fresh.getNextPlay(mirror.toRack(1)), column, mirror.toString());
+			freshNodes += fresh.getNodeCount();
+			reusedNodes += reused.getNodeCount();
+		}
+		assertTrue(reusedNodes < freshNodes / 3, reusedNodes+ " nodes after the mirror image, " +freshNodes+ " without");
+	}
+
+	@Test
+	void iterativeDeepeningPlaysLikeAlphaBeta() {
+		Random random = new Random(7);
+		for (int i = 0; i < 60; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, random.nextInt(30));
+			byte[][] rack = position.toRack(1);
+			int depth = 1 + random.nextInt(7);
+			ComputerConnectFourPlayer alphaBeta = new ComputerConnectFourPlayer(depth, (byte)1, SearchMode.ALPHA_BETA);
+			ComputerConnectFourPlayer deepening = new ComputerConnectFourPlayer(depth, (byte)1, SearchMode.ITERATIVE_DEEPENING);
+			assertEquals(alphaBeta.getNextPlay(rack), deepening.getNextPlay(rack), "depth " +depth+ "\n" +position);
+		}
+	}
+
+	@Test
+	void iterativeDeepeningKeepsATinyBudget() {
+		Random random = new Random(8);
+		for (int i = 0; i < 20; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, random.nextInt(10));
+			ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(30, (byte)1, SearchMode.ITERATIVE_DEEPENING);
+			player.setTimeBudget(1);
+			SearchResult result = player.getNextPlayWithStatistics(position.toRack(1));
+			assertTrue(position.canPlay(result.getColumn()), "column " +result.getColumn()+ " isn't playable");
+			assertTrue(result.getStatistics().getCompletedDepth() >= 1);
+			assertTrue(result.getStatistics().getCompletedDepth() < 30);
+			assertTrue(result.getStatistics().getElapsedNanos() < 1000000000L, result.getStatistics().getElapsedNanos()/1000000 + " ms");
+		}
+	}
+
+	@Test
+	void depthsPastTheEndOfTheGameSearchToTheEnd() {
+		Random random = new Random(6);
+		for (int i = 0; i < 20; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, 30);
+			byte[][] rack = position.toRack(1);
+			int empty = 7*6 - position.getMoves();
+			ComputerConnectFourPlayer exact = new ComputerConnectFourPlayer(empty, (byte)1);
+			ComputerConnectFourPlayer deep = new ComputerConnectFourPlayer(300, (byte)1);
+			TranspositionTable shared = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+			exact.setTranspositionTable(shared);
+			deep.setTranspositionTable(shared);
+			SearchResult result = deep.getNextPlayWithStatistics(rack);
+			assertEquals(exact.getNextPlay(rack), result.getColumn(), position.toString());
+			assertTrue(result.getStatistics().getCompletedDepth() <= empty);
+		}
+	}
+
+	@Test
+	void whatCarriesOverBetweenMovesChangesNoMove() {
+		Random random = new Random(11);
+		for (int game = 0; game < 4; game++) {
+			ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(7, (byte)1);
+			int differentSearches = 0;
+			Position position = new Position();
+			while (true) {
+				byte[][] rack = position.toRack(1);
+				int column = player.getNextPlay(rack);
+				ComputerConnectFourPlayer fresh = new ComputerConnectFourPlayer(7, (byte)1);
+				assertEquals(fresh.getNextPlay(rack), column, position.toString());
+				if (player.getNodeCount() != fresh.getNodeCount()) differentSearches++; // the table and move ordering carried over
+
+				if (position.isWinningMove(column)) break;
+				position.play(column);
+				Position replied = TestPositions.random(random, position, 1);
+				if (replied.getMoves() == position.getMoves()) break; // the game is over, or would be after any reply
+				position = replied;
+			}
+			assertTrue(differentSearches > 0, "nothing carried over");
+		}
+	}
+
+	@Test
+	void resetPlayersSearchLikeNewOnes() {
+		Random random = new Random(5);
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		ComputerConnectFourPlayer reused = new ComputerConnectFourPlayer(7, (byte)1);
+		reused.setTranspositionTable(table);
+		// the positions of one game, two plies apart, so that each search would carry its move ordering over to the next
+		Position position = new Position();
+		for (int i = 0; i < 15; i++) {
+			byte[][] rack = position.toRack(1);
+			table.clear();
+			reused.resetMoveOrdering();
+			int column = reused.getNextPlay(rack);
+
+			ComputerConnectFourPlayer fresh = new ComputerConnectFourPlayer(7, (byte)1);
+			fresh.setTranspositionTable(new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED));
+			assertEquals(fresh.getNextPlay(rack), column, position.toString());
+			assertEquals(fresh.getNodeCount(), reused.getNodeCount(), position.toString());
+
+			position = TestPositions.random(random, position, 2);
+		}
+	}
+
+	// fails unless a column is legal and has the best minimax value
+	static void assertBestValue(ComputerConnectFourPlayer player, byte[][] rack, byte side, int column) {
+		int best = Integer.MIN_VALUE;
+		for (int c : player.actions(rack)) best = Math.max(best, value(player, player.result(rack, c, side), side, 1));
+		assertTrue(contains(player.actions(rack), column), "column " +column+ " isn't playable");
+		assertEquals(best, value(player, player.result(rack, column, side), side, 1), "value of column " +column);
+	}
+
+	// the minimax value of a rack, as the rack search scores it
+	private static int value(ComputerConnectFourPlayer player, byte[][] rack, byte side, int depth) {
+		if (player.terminalTest(rack) || depth >= DEPTH) return player.evaluate(rack);
+		boolean max = (depth % 2 == 0);
+		byte mover = (byte)(max ? side : -side);
+		int best = max ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for (int c : player.actions(rack)) {
+			int u = value(player, player.result(rack, c, mover), side, depth+1);
+			best = max ? Math.max(best, u) : Math.min(best, u);
+		}
+		return best;
+	}
+
+	private static boolean contains(int[] columns, int column) {
+		for (int c : columns) {
+			if (c == column) return true;
+		}
+		return false;
+	}
+}
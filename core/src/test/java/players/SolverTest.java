@@ -0,0 +1,80 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SolverTest {
+	@Test
+	void solvesLikeBruteForce() {
+		assertSolvesLikeBruteForce(4, 4, 4, 16);
+		assertSolvesLikeBruteForce(5, 4, 4, 14);
+		assertSolvesLikeBruteForce(7, 6, 4, 12);
+		assertSolvesLikeBruteForce(5, 4, 3, 14);
+	}
+
+	@Test
+	void playsAMoveOfTheBestScore() {
+		Random random = new Random(8);
+		Solver solver = new Solver();
+		for (int i = 0; i < 100; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, 28 + random.nextInt(10));
+			int[] scores = solver.analyze(position);
+			int best = Integer.MIN_VALUE;
+			for (int score : scores) best = Math.max(best, score);
+			assertEquals(best, solver.solve(position), position.toString());
+			assertEquals(best, scores[solver.bestMove(position)], position.toString());
+		}
+	}
+
+	@Test
+	void tablesOfAnySizeGiveTheSameScores() {
+		Random random = new Random(9);
+		Solver small = new Solver(1);
+		Solver shared = new Solver(new TranspositionTable(1, TranspositionTable.Replacement.ALWAYS_REPLACE));
+		for (int i = 0; i < 30; i++) {
+			Position position = TestPositions.random(random, 7, 6, 4, 20 + random.nextInt(10));
+			int score = new Solver().solve(position);
+			assertEquals(score, small.solve(position), position.toString());
+			assertEquals(score, shared.solve(position), position.toString());
+		}
+	}
+
+	// compares the solver with a full search of random positions with some empty cells left
+	private static void assertSolvesLikeBruteForce(int width, int height, int connect, int empty) {
+		Random random = new Random(width*100 + height*10 + connect);
+		Solver solver = new Solver();
+		for (int i = 0; i < 50; i++) {
+			Position position = TestPositions.random(random, width, height, connect, width*height - empty);
+			if (position.canWinNext()) continue; // scored without searching
+			int expected = bruteForce(position, new HashMap<Long, Integer>());
+			assertEquals(expected, solver.solve(position), width+ "x" +height+ " connect " +connect+ "\n" +position);
+		}
+	}
+
+	// the score of a position by searching every move to the end of the game, in the solver's units
+	private static int bruteForce(Position position, Map<Long, Integer> known) {
+		Integer score = known.get(position.key());
+		if (score != null) return score;
+		int cells = position.getWidth()*position.getHeight();
+		int best = Integer.MIN_VALUE;
+		for (int c = 0; c < position.getWidth(); c++) {
+			if (!position.canPlay(c)) continue;
+			int value;
+			if (position.isWinningMove(c)) {
+				value = (cells + 1 - position.getMoves()) / 2;
+			}
+			else {
+				position.play(c);
+				value = position.isFull() ? 0 : -bruteForce(position, known);
+				position.undo(c);
+			}
+			best = Math.max(best, value);
+		}
+		known.put(position.key(), best);
+		return best;
+	}
+}
@@ -0,0 +1,47 @@
+package players;
+
+import java.util.Random;
+
+/**
+ * Random positions for the tests to search: games played by picking
+ * columns at random, never ending the game.
+ */
+final class TestPositions {
+	private TestPositions() {
+	}
+
+	/**
+	 * Plays random moves on an empty board, none of them winning.
+	 * @param random where the moves come from
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @param connect the length of a winning line
+	 * @param plies the most moves to play
+	 * @return a position still in play (it may have fewer moves, if the moves ran out)
+	 */
+	static Position random(Random random, int width, int height, int connect, int plies) {
+		return random(random, new Position(width, height, connect), plies);
+	}
+
+	/**
+	 * Plays random moves on from a position, none of them winning.
+	 * @param random where the moves come from
+	 * @param start the position to play on from (left unchanged)
+	 * @param plies the most moves to play
+	 * @return a position still in play (it may have fewer moves, if the moves ran out)
+	 */
+	static Position random(Random random, Position start, int plies) {
+		Position position = new Position(start);
+		int width = position.getWidth();
+		for (int i = 0; i < plies; i++) {
+			int[] columns = new int[width];
+			int count = 0;
+			for (int c = 0; c < width; c++) {
+				if (position.canPlay(c) && !position.isWinningMove(c)) columns[count++] = c;
+			}
+			if (count == 0 || position.getMoves() == width*position.getHeight() - 1) break; // leave a move to search
+			position.play(columns[random.nextInt(count)]);
+		}
+		return position;
+	}
+}
@@ -0,0 +1,143 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+	@Test
+	void returnsWhatWasStored() {
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		table.store(12345L, -77, 9, TranspositionTable.LOWER, 6);
+		table.store(999L, Integer.MIN_VALUE, 0, TranspositionTable.UPPER, -1);
+
+		long entry = table.probe(12345L);
+		assertEquals(-77, TranspositionTable.value(entry));
+		assertEquals(9, TranspositionTable.depth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+		assertEquals(6, TranspositionTable.move(entry));
+
+		entry = table.probe(999L);
+		assertEquals(Integer.MIN_VALUE, TranspositionTable.value(entry));
+		assertEquals(-1, TranspositionTable.move(entry));
+
+		assertEquals(0, table.probe(54321L));
+		table.clear();
+		assertEquals(0, table.probe(12345L));
+	}
+
+	@Test
+	void rejectsDepthsThatDontFit() {
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		table.store(1L, 0, 255, TranspositionTable.LOWER, 0);
+		assertEquals(255, TranspositionTable.depth(table.probe(1L)));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(table.probe(1L)));
+		assertThrows(IllegalArgumentException.class, () -> table.store(2L, 0, 256, TranspositionTable.LOWER, 0));
+		assertThrows(IllegalArgumentException.class, () -> table.store(2L, 0, -1, TranspositionTable.LOWER, 0));
+		assertEquals(0, table.probe(2L));
+	}
+
+	@Test
+	void capsItsSize() {
+		assertEquals(1 << 16, new TranspositionTable(1, TranspositionTable.Replacement.ALWAYS_REPLACE).getCapacity());
+		assertEquals(1 << 17, new TranspositionTable(3, TranspositionTable.Replacement.ALWAYS_REPLACE).getCapacity());
+	}
+
+	@Test
+	void keepsTheDeeperEntryOfTheCurrentSearch() {
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		long deep = 1L, shallow = collidingKey(deep);
+		table.newSearch();
+		table.store(deep, 5, 10, TranspositionTable.EXACT, 3);
+		table.store(shallow, 6, 2, TranspositionTable.EXACT, 4);
+		assertEquals(5, TranspositionTable.value(table.probe(deep)));
+		assertEquals(0, table.probe(shallow));
+
+		table.newSearch(); // the deep entry goes unused, so the next search may overwrite it
+		table.store(shallow, 6, 2, TranspositionTable.EXACT, 4);
+		assertEquals(6, TranspositionTable.value(table.probe(shallow)));
+		assertEquals(0, table.probe(deep));
+	}
+
+	@Test
+	void renewsEntriesItFinds() {
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		long deep = 1L, shallow = collidingKey(deep);
+		table.store(deep, 5, 10, TranspositionTable.EXACT, 3);
+		table.newSearch();
+		assertNotEquals(0, table.probe(deep)); // used by this search, so kept
+		table.store(shallow, 6, 2, TranspositionTable.EXACT, 4);
+		assertEquals(5, TranspositionTable.value(table.probe(deep)));
+	}
+
+	@Test
+	void oldEntriesNeverPassForCurrentOnes() {
+		long deep = 1L, shallow = collidingKey(deep);
+		// search counts where a generation number of 8 or 16 bits would wrap around to the deep entry's
+		for (int searches : new int[] {1, 255, 256, 257, 32768, 65535, 65536, 65537, 131072, 200000}) {
+			TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+			table.store(deep, 5, 10, TranspositionTable.EXACT, 3);
+			for (int i = 0; i < searches; i++) table.newSearch();
+			table.store(shallow, 6, 2, TranspositionTable.EXACT, 4);
+			assertEquals(6, TranspositionTable.value(table.probe(shallow)), "after " +searches+ " searches");
+		}
+	}
+
+	@Test
+	void alwaysReplaceOverwrites() {
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.ALWAYS_REPLACE);
+		long deep = 1L, shallow = collidingKey(deep);
+		table.store(deep, 5, 10, TranspositionTable.EXACT, 3);
+		table.store(shallow, 6, 2, TranspositionTable.EXACT, 4);
+		assertEquals(0, table.probe(deep));
+		assertEquals(6, TranspositionTable.value(table.probe(shallow)));
+	}
+
+	@Test
+	void neverReturnsTornEntries() throws InterruptedException {
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.ALWAYS_REPLACE);
+		int keys = 1 << 12; // far fewer slots used than there are keys, so threads keep overwriting each other
+		AtomicReference<String> failure = new AtomicReference<String>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			int seed = t;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 2000000 && failure.get() == null; i++) {
+					long key = ((i * 31L + seed) % keys) << 20 | 1;
+					if ((i & 1) == 0) {
+						table.store(key, valueOf(key), depthOf(key), TranspositionTable.EXACT, (int)(key % 7));
+					}
+					else {
+						long entry = table.probe(key);
+						if (entry != 0 && (TranspositionTable.value(entry) != valueOf(key) || TranspositionTable.depth(entry) != depthOf(key))) {
+							failure.compareAndSet(null, "Key " +key+ " read another key's entry");
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+		assertNull(failure.get());
+	}
+
+	// the data each thread stores for a key, so that another key's data can be told apart
+	private static int valueOf(long key) {
+		return (int)(key * 0x9E3779B1L);
+	}
+
+	private static int depthOf(long key) {
+		return (int)(key >>> 20) & 0xFF;
+	}
+
+	// a key that lands in the same slot as another, found by watching one entry overwrite the other
+	private static long collidingKey(long key) {
+		TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.ALWAYS_REPLACE);
+		for (long other = key+1; ; other++) {
+			table.store(key, 1, 1, TranspositionTable.EXACT, 0);
+			table.store(other, 2, 1, TranspositionTable.EXACT, 0);
+			if (table.probe(key) == 0) return other;
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package game;
+
+import players.ComputerConnectFourPlayer;
+import players.ConnectFourPlayer;
+
+/**
+ * A game of Connect Four between two players, without any graphics. It runs
+ * the same turn loop as graphics.ConnectFour: player 1 moves first, each
+ * player is given a copy of the rack, and the game ends at the first four in
+ * a row (or line of whatever length the game is played to) or when the rack
+ * is full. Anything that wants to watch the game, like
+ * the window, does so through a {@link GameListener}.
+ *
+ * A game object can be played any number of times; each call to
+ * {@link #play} starts from an empty rack.
+ */
+public class ConnectFourGame {
+	/** Alignments of a winning line, as returned by {@link #findWinningAlignment}. */
+	public static final int HORIZONTAL=1, VERTICAL=2, ASCENDING=4, DESCENDING=8;
+
+	/** The sides, in order of play. */
+	public static final byte SIDE1 = 1, SIDE2 = -1;
+
+	private final int numColumns, numRows, connect;
+	private byte[][] rack;
+
+	/**
+	 * Constructs a game of four in a row.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 */
+	public ConnectFourGame(int width, int height) {
+		this(width, height, 4);
+	}
+
+	/**
+	 * Constructs a game.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @param connect the number of tokens in a row that wins
+	 */
+	public ConnectFourGame(int width, int height, int connect) {
+		if (width < 1 || height < 1) throw new IllegalArgumentException("Rack must be at least 1x1, not " +width+ "x" +height);
+		if (connect < 2) throw new IllegalArgumentException("Can't play connect-" +connect);
+		numColumns = width;
+		numRows = height;
+		this.connect = connect;
+		rack = new byte[numRows][numColumns];
+	}
+
+	/**
+	 * Plays computer players against each other without a window, and prints
+	 * the results and the number of games per second.
+	 *
+	 * Usage: java game.ConnectFourGame [player 1 depth] [player 2 depth] [games]
+	 */
+	public static void main(String[] args) {
+		int depth1 = (args.length >= 1) ? Integer.parseInt(args[0]) : 4;
+		int depth2 = (args.length >= 2) ? Integer.parseInt(args[1]) : 4;
+		int games = (args.length >= 3) ? Integer.parseInt(args[2]) : 1000;
+
+		// the players are reused, so their transposition tables are only allocated once
+		ConnectFourPlayer player1 = new ComputerConnectFourPlayer(depth1, SIDE1);
+		ConnectFourPlayer player2 = new ComputerConnectFourPlayer(depth2, SIDE2);
+		ConnectFourGame game = new ConnectFourGame(7, 6);
+		int[] wins = new int[3]; // side 2, ties, side 1
+		GameResult result = null;
+		long start = System.nanoTime();
+		for (int i = 0; i < games; i++) {
+			result = game.play(player1, player2);
+			wins[result.getWinner()+1]++;
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("last game: " +result);
+		System.out.printf("depth %d vs depth %d: %d-%d-%d in %.2f s (%.0f games/s)%n",
+				depth1, depth2, wins[2], wins[1], wins[0], seconds, games/seconds);
+	}
+
+	/**
+	 * Plays a game to the end, without watching it.
+	 * @param player1 the player who moves first, as side 1
+	 * @param player2 the player who moves second, as side -1
+	 * @return the outcome
+	 */
+	public GameResult play(ConnectFourPlayer player1, ConnectFourPlayer player2) {
+		return play(player1, player2, null);
+	}
+
+	/**
+	 * Plays a game to the end.
+	 * @param player1 the player who moves first, as side 1
+	 * @param player2 the player who moves second, as side -1
+	 * @param listener told about every play, or null
+	 * @return the outcome
+	 * @throws IllegalStateException if a player chooses a column that can't be played
+	 */
+	public GameResult play(ConnectFourPlayer player1, ConnectFourPlayer player2, GameListener listener) {
+		return play(player1, player2, new int[0], listener);
+	}
+
+	/**
+	 * Plays a game to the end after some forced opening moves, which are made
+	 * for the players. Player 1 still plays side 1; after an odd number of
+	 * opening moves it is player 2 who makes the first choice.
+	 * @param player1 the player of side 1
+	 * @param player2 the player of side -1
+	 * @param opening the columns to play first, alternating from side 1
+	 * @param listener told about every play, or null
+	 * @return the outcome
+	 * @throws IllegalArgumentException if the opening plays a full column or ends the game
+	 * @throws IllegalStateException if a player chooses a column that can't be played
+	 */
+	public GameResult play(ConnectFourPlayer player1, ConnectFourPlayer player2, int[] opening, GameListener listener) {
+		rack = new byte[numRows][numColumns];
+		int numTurns = numRows*numColumns;
+		int[] moves = new int[numTurns];
+		int numMoves = 0;
+		byte activeSide = SIDE1;
+
+		if (opening.length >= numTurns) throw new IllegalArgumentException("Opening fills the rack");
+		for (int column : opening) {
+			if (column < 0 || column >= numColumns || !isColumnPlayable(column)) {
+				throw new IllegalArgumentException("Opening plays invalid column " +column);
+			}
+			int row = dropToken(column, activeSide);
+			moves[numMoves++] = column;
+			if (listener != null) listener.tokenDropped(column, row, activeSide);
+			if (justWon(column, row)) throw new IllegalArgumentException("Opening ends the game");
+			activeSide = (byte)(-activeSide);
+		}
+
+		ConnectFourPlayer activePlayer = (activeSide == SIDE1) ? player1 : player2;
+		int chosenColumn = -1, chosenRow = -1;
+		for (int i = numMoves; i < numTurns; i++) {
+			chosenColumn = activePlayer.getNextPlay(copyRack());
+
+			// stop if the listener has gone away (e.g. the window was closed)
+			if (listener != null && listener.isShutDown()) {
+				return new GameResult((byte)0, true, trim(moves, numMoves), -1, -1, 0);
+			}
+			if (chosenColumn < 0 || chosenColumn >= numColumns) {
+				throw new IllegalStateException("Player chose invalid column " +chosenColumn+"!");
+			}
+			if (!isColumnPlayable(chosenColumn)) {
+				throw new IllegalStateException("Column " +chosenColumn+ " is already full!");
+			}
+			chosenRow = dropToken(chosenColumn, activeSide);
+			moves[numMoves++] = chosenColumn;
+			if (listener != null) listener.tokenDropped(chosenColumn, chosenRow, activeSide);
+
+			// test for winning
+			int alignment = findWinningAlignment(chosenColumn, chosenRow);
+			if (alignment > 0) {
+				return new GameResult(activeSide, false, trim(moves, numMoves), chosenColumn, chosenRow, alignment);
+			}
+
+			// switch active player
+			if (activePlayer == player1) activePlayer = player2;
+			else activePlayer = player1;
+			activeSide = (byte)(-activeSide);
+		}
+		return new GameResult((byte)0, false, moves, chosenColumn, chosenRow, 0);
+	}
+
+	/**
+	 * Returns a copy of the rack as it stands.
+	 * @return the rack, row 0 at the top
+	 */
+	public byte[][] copyRack() {
+		byte[][] copy = new byte[rack.length][rack[0].length];
+		for (int i=0; i<rack.length; i++) {
+			System.arraycopy(rack[i], 0, copy[i], 0, rack[i].length);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 * @return the width
+	 */
+	public int getWidth() {
+		return numColumns;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * @return the height
+	 */
+	public int getHeight() {
+		return numRows;
+	}
+
+	/**
+	 * Returns the number of tokens in a row that wins.
+	 * @return the connect length
+	 */
+	public int getConnect() {
+		return connect;
+	}
+
+	/**
+	 * Returns true if the token just played completed a winning line.
+	 * @param columnPlayed the column of the token
+	 * @param rowPlayed the row of the token
+	 * @return true for a win
+	 */
+	public boolean justWon(int columnPlayed, int rowPlayed) {
+		return findWinningAlignment(columnPlayed, rowPlayed) > 0;
+	}
+
+	/**
+	 * Finds the winning lines through the token just played.
+	 * @param columnPlayed the column of the token
+	 * @param rowPlayed the row of the token
+	 * @return the bitwise-or of all alignments of a winning line, or 0 if nothing
+	 */
+	public int findWinningAlignment(int columnPlayed, int rowPlayed) {
+		return findWinningAlignment(rack, columnPlayed, rowPlayed, connect);
+	}
+
+	/**
+	 * Finds the fours in a row through a token of any rack.
+	 * @param rack the rack, row 0 at the top
+	 * @param columnPlayed the column of the token
+	 * @param rowPlayed the row of the token
+	 * @return the bitwise-or of all alignments of a winning 4-in-a-row, or 0 if nothing
+	 */
+	public static int findWinningAlignment(byte[][] rack, int columnPlayed, int rowPlayed) {
+		return findWinningAlignment(rack, columnPlayed, rowPlayed, 4);
+	}
+
+	/**
+	 * Finds the lines of some length through a token of any rack.
+	 * @param rack the rack, row 0 at the top
+	 * @param columnPlayed the column of the token
+	 * @param rowPlayed the row of the token
+	 * @param connect the number of tokens in a row that wins
+	 * @return the bitwise-or of all alignments of a winning line, or 0 if nothing
+	 */
+	public static int findWinningAlignment(byte[][] rack, int columnPlayed, int rowPlayed, int connect) {
+		int numRows = rack.length, numColumns = rack[0].length;
+		int result = 0;
+
+		byte side = rack[rowPlayed][columnPlayed];
+
+		// horizontal
+		int count = 1;
+		for (int c = columnPlayed-1; c >= 0 && rack[rowPlayed][c] == side; c--){
+			count++;
+		}
+		for (int c = columnPlayed+1; c < numColumns && rack[rowPlayed][c] == side; c++){
+			count++;
+		}
+		if (count >= connect) {
+			result |= HORIZONTAL;
+		}
+
+		// vertical
+		count = 1;
+		for (int r=rowPlayed+1; r < numRows && rack[r][columnPlayed]==side; r++){
+			count++;
+		}
+		if (count >= connect) {
+			result |= VERTICAL;
+		}
+
+		// ascending
+		count = 1;
+		for (int c=columnPlayed-1,r=rowPlayed+1; c>=0 && r<numRows && rack[r][c]==side; c--,r++){
+			count++;
+		}
+		for (int c=columnPlayed+1,r=rowPlayed-1; c<numColumns && r>=0 && rack[r][c]==side; c++,r--){
+			count++;
+		}
+		if (count >= connect) {
+			result |= ASCENDING;
+		}
+
+		// descending
+		count = 1;
+		for (int c=columnPlayed-1,r=rowPlayed-1; c>=0 && r>=0 && rack[r][c]==side; c--,r--){
+			count++;
+		}
+		for (int c=columnPlayed+1,r=rowPlayed+1; c < numColumns && r< numRows && rack[r][c]==side; c++,r++){
+			count++;
+		}
+		if (count >= connect) result |= DESCENDING;
+
+		return result; // 0 if nothing
+	}
+
+	// can this column be played?
+	private boolean isColumnPlayable(int column) {
+		return rack[0][column] == 0;
+	}
+
+	// place a token, and return the row it landed in
+	private int dropToken(int column, byte side) {
+		int row;
+		for (row = 0; row < numRows-1; row++) {
+			if (rack[row+1][column] != 0) break;
+		}
+		rack[row][column] = side;
+		return row;
+	}
+
+	// the first n moves
+	private static int[] trim(int[] moves, int n) {
+		int[] result = new int[n];
+		System.arraycopy(moves, 0, result, 0, n);
+		return result;
+	}
+}
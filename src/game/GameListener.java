@@ -0,0 +1,24 @@
+package game;
+
+/**
+ * Receives the plays of a {@link ConnectFourGame} as they happen, e.g. to
+ * draw them. A headless game doesn't need one.
+ */
+public interface GameListener {
+	/**
+	 * Called after a token has been placed in the rack.
+	 * @param column the column played
+	 * @param row the row the token landed in (0 is the top row)
+	 * @param side the side that played, -1 or 1
+	 */
+	void tokenDropped(int column, int row, byte side);
+
+	/**
+	 * Called after each player's turn. Returning true abandons the game, e.g.
+	 * when its window was closed while a human was choosing.
+	 * @return true to stop the game
+	 */
+	default boolean isShutDown() {
+		return false;
+	}
+}
@@ -0,0 +1,114 @@
+package game;
+
+import players.PositionCodec;
+
+/**
+ * The outcome of one {@link ConnectFourGame}.
+ */
+public final class GameResult {
+	private final byte winner;
+	private final boolean abandoned;
+	private final int[] moves;
+	private final int lastColumn, lastRow;
+	private final int alignment;
+
+	/**
+	 * Constructs a result.
+	 * @param winner the side that won, -1 or 1, or 0 for a tie or an abandoned game
+	 * @param abandoned true if the game was stopped before it ended
+	 * @param moves the columns played, in order
+	 * @param lastColumn the column of the last play, or -1 if there was none
+	 * @param lastRow the row of the last play, or -1 if there was none
+	 * @param alignment the winning alignments through the last play, as
+	 * returned by {@link ConnectFourGame#findWinningAlignment}
+	 */
+	GameResult(byte winner, boolean abandoned, int[] moves, int lastColumn, int lastRow, int alignment) {
+		this.winner = winner;
+		this.abandoned = abandoned;
+		this.moves = moves;
+		this.lastColumn = lastColumn;
+		this.lastRow = lastRow;
+		this.alignment = alignment;
+	}
+
+	/**
+	 * Returns the side that won.
+	 * @return -1 or 1, or 0 if nobody won
+	 */
+	public byte getWinner() {
+		return winner;
+	}
+
+	/**
+	 * Returns whether the board filled up without a winner.
+	 * @return true for a tie
+	 */
+	public boolean isTie() {
+		return winner == 0 && !abandoned;
+	}
+
+	/**
+	 * Returns whether the game was stopped by its listener before it ended.
+	 * @return true if abandoned
+	 */
+	public boolean isAbandoned() {
+		return abandoned;
+	}
+
+	/**
+	 * Returns the columns played, in order.
+	 * @return a copy of the moves
+	 */
+	public int[] getMoves() {
+		return moves.clone();
+	}
+
+	/**
+	 * Returns the number of tokens played.
+	 * @return the number of moves
+	 */
+	public int getMoveCount() {
+		return moves.length;
+	}
+
+	/**
+	 * Returns the column of the last play, which completed the four in a row
+	 * if there was a winner.
+	 * @return the column, or -1 if nothing was played
+	 */
+	public int getLastColumn() {
+		return lastColumn;
+	}
+
+	/**
+	 * Returns the row of the last play.
+	 * @return the row, or -1 if nothing was played
+	 */
+	public int getLastRow() {
+		return lastRow;
+	}
+
+	/**
+	 * Returns the winning alignments through the last play.
+	 * @return a bitwise-or of {@link ConnectFourGame#HORIZONTAL}, {@link ConnectFourGame#VERTICAL},
+	 * {@link ConnectFourGame#ASCENDING} and {@link ConnectFourGame#DESCENDING}; 0 if nobody won
+	 */
+	public int getAlignment() {
+		return alignment;
+	}
+
+	/**
+	 * Returns the moves as a string of 1-based columns, the format read by
+	 * {@link players.Position#fromMoves} and {@link PositionCodec#decodeMoves}.
+	 * @return the move string
+	 */
+	public String getMoveString() {
+		return PositionCodec.appendMoves(moves, moves.length, new StringBuilder(moves.length)).toString();
+	}
+
+	@Override
+	public String toString() {
+		String outcome = abandoned ? "abandoned" : (winner == 0) ? "tie" : "side " +winner+ " won";
+		return outcome + " after " +moves.length+ " moves (" +getMoveString()+ ")";
+	}
+}
@@ -0,0 +1,18 @@
+package game;
+
+import players.ConnectFourPlayer;
+
+/**
+ * Makes players for a {@link Tournament}. Players needn't be thread-safe:
+ * the tournament asks each of its threads for its own players, and reuses
+ * them from game to game. Computer players made by one factory are given a
+ * transposition table shared by all of them.
+ */
+public interface PlayerFactory {
+	/**
+	 * Makes a player.
+	 * @param side the side it will play, -1 or 1
+	 * @return the new player
+	 */
+	ConnectFourPlayer create(byte side);
+}
@@ -0,0 +1,242 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import players.ComputerConnectFourPlayer;
+import players.ConnectFourPlayer;
+import players.EvaluationWeights;
+import players.SearchMode;
+import players.TranspositionTable;
+
+/**
+ * A round-robin tournament between players, played headless on a pool of
+ * threads.
+ *
+ * Every pair of entrants plays the same number of games. Games come in twos
+ * that start from the same random opening with the colors swapped, so
+ * neither entrant gains from a lopsided opening or from moving first. The
+ * openings are drawn from a seeded generator, so a tournament can be
+ * repeated exactly.
+ *
+ * Each thread makes its own players, but the computer players of an entrant
+ * all share one transposition table, the one the first of them would have
+ * made for itself. So memory grows with the number of entrants, not with the
+ * number of threads, and an entrant's threads save each other work. Sharing
+ * the table doesn't change the moves, as a search only uses entries of the
+ * depth it needs.
+ */
+public class Tournament {
+	private final List<String> names = new ArrayList<String>();
+	private final List<PlayerFactory> factories = new ArrayList<PlayerFactory>();
+	private final int threads;
+	private final int width, height, connect;
+	private int openingMoves = 4;
+	private long seed = 1;
+
+	/**
+	 * Constructs a tournament on the standard rack.
+	 * @param threads the number of games to play at once
+	 */
+	public Tournament(int threads) {
+		this(threads, 7, 6);
+	}
+
+	/**
+	 * Constructs a tournament of four in a row.
+	 * @param threads the number of games to play at once
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 */
+	public Tournament(int threads, int width, int height) {
+		this(threads, width, height, 4);
+	}
+
+	/**
+	 * Constructs a tournament. The players must be set up for the same
+	 * connect length, e.g. with ComputerConnectFourPlayer.setConnectLength().
+	 * @param threads the number of games to play at once
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @param connect the number of tokens in a row that wins
+	 */
+	public Tournament(int threads, int width, int height, int connect) {
+		if (threads < 1) throw new IllegalArgumentException("Need at least 1 thread, not " +threads);
+		this.threads = threads;
+		this.width = width;
+		this.height = height;
+		this.connect = connect;
+	}
+
+	/**
+	 * Adds an entrant.
+	 * @param name the name to report it under
+	 * @param factory makes the entrant's players
+	 */
+	public void addPlayer(String name, PlayerFactory factory) {
+		names.add(name);
+		factories.add(factory);
+	}
+
+	/**
+	 * Sets how many random moves are played before the players take over.
+	 * Openings never contain a win.
+	 * @param moves the number of opening moves (default 4)
+	 */
+	public void setOpeningMoves(int moves) {
+		if (moves < 0 || moves >= width*height) throw new IllegalArgumentException("Bad number of opening moves: " +moves);
+		openingMoves = moves;
+	}
+
+	/**
+	 * Sets the seed of the random openings.
+	 * @param seed the seed (default 1)
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Plays the tournament.
+	 * @param gamesPerPair the number of games each pair of entrants plays
+	 * @return the results
+	 */
+	public TournamentResult run(int gamesPerPair) {
+		int entrants = names.size();
+		if (entrants < 2) throw new IllegalStateException("A tournament needs at least 2 players");
+
+		// one opening for every two games, shared by all pairs
+		Random random = new Random(seed);
+		int[][] openings = new int[(gamesPerPair+1)/2][];
+		for (int i = 0; i < openings.length; i++) openings[i] = randomOpening(random);
+
+		TournamentResult result = new TournamentResult(names);
+		TranspositionTable[] tables = new TranspositionTable[entrants]; // each entrant's shared table, once made
+		ThreadLocal<ConnectFourPlayer[][]> players = ThreadLocal.withInitial(() -> new ConnectFourPlayer[entrants][2]);
+		ThreadLocal<ConnectFourGame> games = ThreadLocal.withInitial(() -> new ConnectFourGame(width, height, connect));
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		long start = System.nanoTime();
+		try {
+			for (int a = 0; a < entrants; a++) {
+				for (int b = a+1; b < entrants; b++) {
+					for (int g = 0; g < gamesPerPair; g++) {
+						// alternate who plays side 1
+						int first = (g % 2 == 0) ? a : b, second = (g % 2 == 0) ? b : a;
+						int[] opening = openings[g/2];
+						futures.add(pool.submit(() -> {
+							ConnectFourPlayer[][] mine = players.get();
+							GameResult game = games.get().play(player(mine, tables, first, 0), player(mine, tables, second, 1), opening, null);
+							result.record(first, second, game.getWinner());
+						}));
+					}
+				}
+			}
+			for (Future<?> future : futures) waitFor(future);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Plays computer players of different depths against each other, and
+	 * prints the results. A depth may be followed by the player's evaluation
+	 * weights, as read by EvaluationWeights.parse(), e.g. "6:1,10,100,50", so
+	 * that heuristics can be compared.
+	 *
+	 * Usage: java game.Tournament [games per pair] [depth[:weights] or "solve"]...
+	 */
+	public static void main(String[] args) {
+		int gamesPerPair = (args.length >= 1) ? Integer.parseInt(args[0]) : 100;
+		int threads = Runtime.getRuntime().availableProcessors();
+		Tournament tournament = new Tournament(threads);
+
+		String[] depths = (args.length >= 2) ? Arrays.copyOfRange(args, 1, args.length) : new String[] {"2", "4", "6"};
+		for (String depth : depths) {
+			if (depth.equals("solve")) {
+				tournament.addPlayer("perfect", side -> new ComputerConnectFourPlayer(1, side, SearchMode.SOLVE));
+				continue;
+			}
+			String[] parts = depth.split(":", 2);
+			int plies = Integer.parseInt(parts[0]);
+			if (parts.length == 1) {
+				tournament.addPlayer("depth " +plies, side -> new ComputerConnectFourPlayer(plies, side));
+				continue;
+			}
+			EvaluationWeights weights = EvaluationWeights.parse(parts[1]);
+			tournament.addPlayer("depth " +plies+ " (" +weights+ ")", side -> {
+				ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(plies, side);
+				player.setEvaluationWeights(weights);
+				return player;
+			});
+		}
+		System.out.println(tournament.run(gamesPerPair));
+	}
+
+	// the thread's player for an entrant and side index (0 for side 1), made on first use
+	private ConnectFourPlayer player(ConnectFourPlayer[][] mine, TranspositionTable[] tables, int entrant, int sideIndex) {
+		if (mine[entrant][sideIndex] == null) {
+			byte side = (sideIndex == 0) ? ConnectFourGame.SIDE1 : ConnectFourGame.SIDE2;
+			ConnectFourPlayer player = factories.get(entrant).create(side);
+			if (player instanceof ComputerConnectFourPlayer) shareTable((ComputerConnectFourPlayer)player, tables, entrant);
+			mine[entrant][sideIndex] = player;
+		}
+		return mine[entrant][sideIndex];
+	}
+
+	// gives a computer player its entrant's table, which the entrant's first computer player provides
+	private static void shareTable(ComputerConnectFourPlayer player, TranspositionTable[] tables, int entrant) {
+		synchronized (tables) {
+			if (tables[entrant] == null) tables[entrant] = player.getTranspositionTable();
+			else player.setTranspositionTable(tables[entrant]);
+		}
+	}
+
+	// random legal moves that don't win, played on a rack so that any size of board will do
+	private int[] randomOpening(Random random) {
+		byte[][] rack = new byte[height][width];
+		int[] heights = new int[width];
+		int[] opening = new int[openingMoves];
+		int[] candidates = new int[width];
+		byte side = ConnectFourGame.SIDE1;
+		for (int i = 0; i < openingMoves; i++) {
+			int count = 0;
+			for (int column = 0; column < width; column++) {
+				if (heights[column] == height) continue;
+				int row = height-1 - heights[column];
+				rack[row][column] = side;
+				if (ConnectFourGame.findWinningAlignment(rack, column, row, connect) == 0) candidates[count++] = column;
+				rack[row][column] = 0;
+			}
+			if (count == 0) return randomOpening(random); // dead end: start over
+			opening[i] = candidates[random.nextInt(count)];
+			rack[height-1 - heights[opening[i]]++][opening[i]] = side;
+			side = (byte)(-side);
+		}
+		return opening;
+	}
+
+	// waits for a game, passing on its failure
+	private static void waitFor(Future<?> future) {
+		try {
+			future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tournament interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Tournament game failed", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The results of a {@link Tournament}: win/draw/loss counts for every
+ * pairing, Elo ratings, and 95% confidence intervals.
+ *
+ * Ratings are maximum likelihood estimates over all the games, with draws
+ * counting as half a win, centered on 1500. Each pairing also counts one
+ * virtual draw, which keeps the ratings finite when one entrant wins every
+ * game.
+ */
+public class TournamentResult {
+	private static final double Z = 1.96; // 95% confidence
+	private static final double ELO_SCALE = 400 / Math.log(10);
+
+	private final List<String> names;
+	private final int[][] wins, draws; // [player][opponent], from the player's side
+	private long elapsedNanos;
+
+	/**
+	 * Constructs an empty result.
+	 * @param names the entrants' names
+	 */
+	TournamentResult(List<String> names) {
+		this.names = new ArrayList<String>(names);
+		wins = new int[names.size()][names.size()];
+		draws = new int[names.size()][names.size()];
+	}
+
+	/**
+	 * Records one game.
+	 * @param first the entrant who played side 1
+	 * @param second the entrant who played side -1
+	 * @param winner the side that won, or 0 for a tie
+	 */
+	synchronized void record(int first, int second, byte winner) {
+		if (winner == ConnectFourGame.SIDE1) wins[first][second]++;
+		else if (winner == ConnectFourGame.SIDE2) wins[second][first]++;
+		else {
+			draws[first][second]++;
+			draws[second][first]++;
+		}
+	}
+
+	/**
+	 * Sets how long the tournament took.
+	 * @param nanos the time in nanoseconds
+	 */
+	void setElapsedNanos(long nanos) {
+		elapsedNanos = nanos;
+	}
+
+	/**
+	 * Returns the number of entrants.
+	 * @return the number of entrants
+	 */
+	public int getPlayerCount() {
+		return names.size();
+	}
+
+	/**
+	 * Returns an entrant's name.
+	 * @param player the entrant's index, in the order they were added
+	 * @return the name
+	 */
+	public String getName(int player) {
+		return names.get(player);
+	}
+
+	/**
+	 * Returns how many games one entrant won against another.
+	 * @param player the entrant
+	 * @param opponent the opponent
+	 * @return the number of wins
+	 */
+	public synchronized int getWins(int player, int opponent) {
+		return wins[player][opponent];
+	}
+
+	/**
+	 * Returns how many games two entrants tied.
+	 * @param player the entrant
+	 * @param opponent the opponent
+	 * @return the number of draws
+	 */
+	public synchronized int getDraws(int player, int opponent) {
+		return draws[player][opponent];
+	}
+
+	/**
+	 * Returns how many games one entrant lost against another.
+	 * @param player the entrant
+	 * @param opponent the opponent
+	 * @return the number of losses
+	 */
+	public synchronized int getLosses(int player, int opponent) {
+		return wins[opponent][player];
+	}
+
+	/**
+	 * Returns an entrant's total wins, draws and losses.
+	 * @param player the entrant
+	 * @return {wins, draws, losses}
+	 */
+	public synchronized int[] getRecord(int player) {
+		int[] record = new int[3];
+		for (int opponent = 0; opponent < names.size(); opponent++) {
+			record[0] += wins[player][opponent];
+			record[1] += draws[player][opponent];
+			record[2] += wins[opponent][player];
+		}
+		return record;
+	}
+
+	/**
+	 * Returns the total number of games played.
+	 * @return the number of games
+	 */
+	public synchronized int getGameCount() {
+		int games = 0;
+		for (int player = 0; player < names.size(); player++) {
+			for (int opponent = 0; opponent < names.size(); opponent++) {
+				games += wins[player][opponent];
+				if (player < opponent) games += draws[player][opponent];
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Returns how long the tournament took.
+	 * @return the time in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of games finished per second of wall-clock time.
+	 * @return the games per second
+	 */
+	public double getGamesPerSecond() {
+		return (elapsedNanos == 0) ? 0 : getGameCount() * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns the entrants' Elo ratings.
+	 * @return the ratings, by entrant, averaging 1500
+	 */
+	public synchronized double[] getRatings() {
+		int n = names.size();
+		double[] ratings = new double[n];
+
+		// Newton's method on each rating in turn, until nothing moves
+		for (int iteration = 0; iteration < 1000; iteration++) {
+			double largestStep = 0;
+			for (int i = 0; i < n; i++) {
+				double score = 0, expected = 0, information = 0;
+				for (int j = 0; j < n; j++) {
+					if (i == j) continue;
+					double games = wins[i][j] + draws[i][j] + wins[j][i] + 1; // + the virtual draw
+					double p = expectedScore(ratings[i] - ratings[j]);
+					score += wins[i][j] + 0.5*draws[i][j] + 0.5;
+					expected += games*p;
+					information += games*p*(1-p);
+				}
+				double step = ELO_SCALE * (score-expected) / information;
+				ratings[i] += step;
+				largestStep = Math.max(largestStep, Math.abs(step));
+			}
+			if (largestStep < 1e-6) break;
+		}
+
+		double mean = 0;
+		for (double rating : ratings) mean += rating/n;
+		for (int i = 0; i < n; i++) ratings[i] += 1500 - mean;
+		return ratings;
+	}
+
+	/**
+	 * Returns the Elo difference implied by two entrants' games against each
+	 * other, with its 95% confidence interval. The bounds are infinite when
+	 * the interval reaches a perfect score.
+	 * @param player the entrant
+	 * @param opponent the opponent
+	 * @return {difference, low bound, high bound}, or NaNs if they haven't played
+	 */
+	public synchronized double[] getEloDifference(int player, int opponent) {
+		int w = wins[player][opponent], d = draws[player][opponent], l = wins[opponent][player];
+		int n = w + d + l;
+		if (n == 0) return new double[] {Double.NaN, Double.NaN, Double.NaN};
+
+		double score = (w + 0.5*d) / n;
+		double variance = (w*sq(1-score) + d*sq(0.5-score) + l*sq(score)) / n;
+		double error = Z * Math.sqrt(variance / n);
+		return new double[] {elo(score), elo(score - error), elo(score + error)};
+	}
+
+	/**
+	 * Returns the Wilson 95% confidence interval of a proportion of games.
+	 * @param count the number of games with the outcome
+	 * @param games the number of games
+	 * @return {low, high}, as fractions
+	 */
+	public static double[] confidenceInterval(int count, int games) {
+		if (games == 0) return new double[] {0, 1};
+		double p = (double)count / games;
+		double z2 = Z*Z / games;
+		double center = (p + z2/2) / (1 + z2);
+		double half = Z * Math.sqrt(p*(1-p)/games + z2/(4*games)) / (1 + z2);
+		return new double[] {Math.max(0, center-half), Math.min(1, center+half)};
+	}
+
+	@Override
+	public String toString() {
+		int n = names.size();
+		double[] ratings = getRatings();
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-20s %6s %7s %7s %7s %8s %20s %20s %20s%n",
+				"player", "elo", "wins", "draws", "losses", "games", "win % (95% CI)", "draw % (95% CI)", "loss % (95% CI)"));
+		for (int i = 0; i < n; i++) {
+			int[] record = getRecord(i);
+			int games = record[0] + record[1] + record[2];
+			report.append(String.format("%-20s %6.0f %7d %7d %7d %8d %20s %20s %20s%n", names.get(i), ratings[i],
+					record[0], record[1], record[2], games,
+					percentWithInterval(record[0], games), percentWithInterval(record[1], games), percentWithInterval(record[2], games)));
+		}
+
+		report.append(String.format("%n%-43s %8s %8s %8s %22s%n", "pairing", "wins", "draws", "losses", "elo diff (95% CI)"));
+		for (int i = 0; i < n; i++) {
+			for (int j = i+1; j < n; j++) {
+				double[] difference = getEloDifference(i, j);
+				report.append(String.format("%-43s %8d %8d %8d %6.0f [%6.0f, %6.0f]%n", names.get(i)+ " vs " +names.get(j),
+						getWins(i, j), getDraws(i, j), getLosses(i, j), difference[0], difference[1], difference[2]));
+			}
+		}
+
+		report.append(String.format("%n%d games in %.2f s (%.0f games/s)", getGameCount(), elapsedNanos/1e9, getGamesPerSecond()));
+		return report.toString();
+	}
+
+	// the expected score of a player rated this much above the opponent
+	private static double expectedScore(double difference) {
+		return 1 / (1 + Math.pow(10, -difference/400));
+	}
+
+	// the rating difference that gives this expected score
+	private static double elo(double score) {
+		if (score <= 0) return Double.NEGATIVE_INFINITY;
+		if (score >= 1) return Double.POSITIVE_INFINITY;
+		return -400 * Math.log10(1/score - 1);
+	}
+
+	private static double sq(double x) {
+		return x*x;
+	}
+
+	// e.g. "52.0 [47.1, 56.9]"
+	private static String percentWithInterval(int count, int games) {
+		double[] interval = confidenceInterval(count, games);
+		double percent = (games == 0) ? 0 : 100.0*count/games;
+		return String.format("%.1f [%.1f, %.1f]", percent, 100*interval[0], 100*interval[1]);
+	}
+}
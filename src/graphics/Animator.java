@@ -0,0 +1,135 @@
+package graphics;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws on a window from a render thread of its own, so that the program's
+ * other threads never wait for an animation to finish.
+ *
+ * Animations are played one after another, in the order they were given.
+ * Each frame is drawn for the time since the animation began, so an
+ * animation takes as long however late its frames come. The thread only
+ * wakes up for frames while there is something to animate.
+ *
+ * All drawing on the window should go through one animator, so that it
+ * happens on one thread: other drawing can be handed to {@link #draw}.
+ */
+final class Animator {
+	/**
+	 * Something that moves over several frames.
+	 */
+	interface Animation {
+		/**
+		 * Draws a frame.
+		 * @param seconds the time since the animation's first frame
+		 * @return true if this was the last frame
+		 */
+		boolean frame(double seconds);
+	}
+
+	private final ScheduledExecutorService thread;
+	private final long framePeriod;                      // nanoseconds between frames
+	private final ArrayDeque<Animation> queue = new ArrayDeque<Animation>(); // only used on the render thread
+	private Animation current;                          // the animation playing, or null
+	private long start;                                 // System.nanoTime() of its first frame
+	private ScheduledFuture<?> ticker;                  // calls tick() while there are animations, or null
+	private int unfinished;                             // animations given but not finished, guarded by this
+
+	/**
+	 * Constructs an animator.
+	 * @param frameMillis the time between frames, in milliseconds
+	 */
+	Animator(int frameMillis) {
+		framePeriod = TimeUnit.MILLISECONDS.toNanos(frameMillis);
+		thread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread render = new Thread(runnable, "connect-four-render");
+			render.setDaemon(true); // don't keep the program alive after the game
+			return render;
+		});
+	}
+
+	/**
+	 * Queues an animation to play after those already given.
+	 * @param animation the animation
+	 */
+	void play(Animation animation) {
+		synchronized (this) {
+			unfinished++;
+		}
+		thread.execute(() -> {
+			queue.add(animation);
+			if (ticker == null) ticker = thread.scheduleAtFixedRate(this::tick, 0, framePeriod, TimeUnit.NANOSECONDS);
+		});
+	}
+
+	/**
+	 * Draws something on the render thread, between frames.
+	 * @param drawing the drawing to do
+	 */
+	void draw(Runnable drawing) {
+		thread.execute(drawing);
+	}
+
+	/**
+	 * Waits until every animation and drawing given so far is done.
+	 */
+	void awaitIdle() {
+		try {
+			synchronized (this) {
+				while (unfinished > 0) wait();
+			}
+			thread.submit(() -> {}).get(); // and any drawing queued behind them
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Drawing failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Stops the render thread, dropping whatever hasn't been drawn.
+	 */
+	void shutdown() {
+		thread.shutdownNow();
+		synchronized (this) {
+			unfinished = 0;
+			notifyAll();
+		}
+	}
+
+	// draws the current animation's next frame, moving on to the next animation once it's done
+	private void tick() {
+		if (current == null) {
+			current = queue.poll();
+			if (current == null) { // nothing left: sleep until the next animation
+				ticker.cancel(false);
+				ticker = null;
+				return;
+			}
+			start = System.nanoTime();
+		}
+
+		boolean done = true;
+		try {
+			done = current.frame((System.nanoTime() - start) / 1e9);
+		}
+		catch (RuntimeException e) {
+			System.err.println("Animation failed: " +e); // e.g. the window was closed under it; carry on with the rest
+		}
+		if (done) {
+			current = null;
+			synchronized (this) {
+				unfinished--;
+				notifyAll();
+			}
+		}
+	}
+}
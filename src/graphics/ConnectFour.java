@@ -2,7 +2,9 @@ package graphics;
 /**
  * This object is the base Connect Four game. It sets two players against one
  * another, who may be either human or AI. To make a new player type, you must
- * implement the included ConnectFourPlayer interface.
+ * implement the included ConnectFourPlayer interface. The turns are played by
+ * game.ConnectFourGame, which this class draws; use that class directly to
+ * play games without a window.
  *
  * DO NOT ALTER THIS FILE. Your AI will be tested with this class, as it stands.
  *
@@ -12,9 +14,13 @@ package graphics;
 
 import java.util.*;
 
+import game.ConnectFourGame;
+import game.GameListener;
+import game.GameResult;
 import players.ComputerConnectFourPlayer;
 import players.HumanConnectFourPlayer;
 import players.ConnectFourPlayer;
+import players.Position;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -29,20 +35,25 @@ public class ConnectFour {
 	private static final Color TOKEN1_COLOR = new Color(204, 51, 0), TOKEN2_COLOR = new Color(0, 102, 255);
 	private static final Stroke THICK_STROKE = new BasicStroke(2), THICKER_STROKE = new BasicStroke(4);
 
-	private static final int HORIZONTAL=1, VERTICAL=2, ASCENDING=4, DESCENDING=8;
+	private static final int HORIZONTAL=ConnectFourGame.HORIZONTAL, VERTICAL=ConnectFourGame.VERTICAL,
+			ASCENDING=ConnectFourGame.ASCENDING, DESCENDING=ConnectFourGame.DESCENDING;
 
-	private static final byte SIDE1 = 1, SIDE2 = -1;
+	private static final byte SIDE1 = ConnectFourGame.SIDE1, SIDE2 = ConnectFourGame.SIDE2;
 
-	private static final double DROP_RATE = 0.01;
+	private static final double DROP_ACCELERATION = 100.0; // rows per second per second
+	private static final int FRAME_MILLIS = 10;
 
 
 	private final int SPACE_SIZE;
 	private byte[][] rack;
+	private ConnectFourGame game;
 	private GraphicsWindow window;
 	private MouseHandler mouseHandler;
 	private BufferedImage rackSpace;
 	private BufferedImage[] tokens;
-	private int hoveringToken = -1;
+	private int hoveringToken = -1; // drawing state, only used on the animator's thread
+	private byte hoveringSide;
+	private final Animator animator = new Animator(FRAME_MILLIS); // does all the drawing once the game starts
 	private int numColumns, numRows;
 
 	public static void main(String[] args) {
@@ -71,6 +82,7 @@ public class ConnectFour {
 		numRows = height;
 		numColumns = width;
 		rack = new byte[numRows][numColumns];
+		game = new ConnectFourGame(width, height);
 		drawFullRack();
 		window.flip();
 	}
@@ -82,7 +94,7 @@ public class ConnectFour {
 	 */
 	public void playGame(int player1Type, int player2Type) {
 		// init the players
-		ConnectFourPlayer player1, player2, winner = null;
+		ConnectFourPlayer player1, player2;
 
 		player1 = (player1Type == 0) ? 	new HumanConnectFourPlayer(SIDE1, this) :
 			new ComputerConnectFourPlayer(player1Type, SIDE1);
@@ -90,56 +102,47 @@ public class ConnectFour {
 		player2 = (player2Type == 0) ? 	new HumanConnectFourPlayer(SIDE2, this) :
 			new ComputerConnectFourPlayer(player2Type, SIDE2);
 
+		// a computer playing a human thinks while the human does, on a board the bitboard search can ponder
+		boolean ponder = Position.fits(numColumns, numRows);
+		if (ponder && player1Type == 0 && player2Type > 0) ((ComputerConnectFourPlayer)player2).setPondering(true);
+		if (ponder && player2Type == 0 && player1Type > 0) ((ComputerConnectFourPlayer)player1).setPondering(true);
 
-		// player 1 goes 1st
-		ConnectFourPlayer activePlayer = player1;
-		byte activeSide = SIDE1;
-		int chosenColumn = -1;
 
-
-		// play the game!
-		int numTurns = numRows*numColumns;
-		int chosenRow = 0;
-		for (int i = 0; i < numTurns; i++) {
-
-			// go!
-			chosenColumn = activePlayer.getNextPlay(copyRack());
-
-			// end program if window closed
-			if (mouseHandler.isShutDown()) {
-				return;
-			}
-			if (chosenColumn < 0 || chosenColumn > numColumns){
-				throw new IllegalStateException("Player chose invalid column " +chosenColumn+"!");
-			}
-			if (!isColumnPlayable(chosenColumn)){
-				throw new IllegalStateException("Column " +chosenColumn+ " is already full!");
+		// play the game! the turns are run by the headless game; we just draw them, while the game goes on
+		rack = new byte[numRows][numColumns];
+		GameResult result = game.play(player1, player2, new GameListener() {
+			public void tokenDropped(int column, int row, byte side) {
+				rack[row][column] = side;
+				animator.play(new Drop(column, row, side));
 			}
-			chosenRow = dropToken(chosenColumn, activeSide);
 
-			// test for winning
-			if (justWon(chosenColumn, chosenRow)) {
-				winner = activePlayer;
-				break;
+			public boolean isShutDown() {
+				return mouseHandler.isShutDown();
 			}
+		});
 
-			// switch active player
-			if (activePlayer == player1) activePlayer = player2;
-			else activePlayer = player1;
-			activeSide = (byte)(-activeSide);
+		stopPondering(player1);
+		stopPondering(player2);
+
+		// end program if window closed
+		if (result.isAbandoned()) {
+			return;
 		}
 
+		// let the last tokens land
+		animator.awaitIdle();
+
 		// game's over--draw the appropriate message across the top of the screen
 		window.copyBack();
-		if (winner == null) {
+		if (result.getWinner() == 0) {
 			drawMessage("Tie Game", RACK_COLOR);
 		}
 		else {
 			Color color;
-			if (winner == player1) color = TOKEN1_COLOR;
+			if (result.getWinner() == SIDE1) color = TOKEN1_COLOR;
 			else color = TOKEN2_COLOR;
 			drawMessage("WINNER", color);
-			highlightRow(chosenColumn, chosenRow);
+			highlightRow(result.getLastColumn(), result.getLastRow());
 		}
 
 		// finally, display all & wait for the user to close out
@@ -148,25 +151,17 @@ public class ConnectFour {
 		mouseHandler.waitForClick();
 	}
 
-	// makes a copy of the rack, to prevent players from accessing it directly
-	private byte[][] copyRack() {
-		byte[][] copy = new byte[rack.length][rack[0].length];
-		for (int i=0; i<rack.length; i++) {
-			System.arraycopy(rack[i], 0, copy[i], 0, rack[i].length);
-		}
-		return copy;
+	// stops a computer player thinking on its opponent's time, once there's no more game
+	private static void stopPondering(ConnectFourPlayer player) {
+		if (player instanceof ComputerConnectFourPlayer) ((ComputerConnectFourPlayer)player).setPondering(false);
 	}
 
 	// tears down the window when we're done
 	public void endGame() {
+		animator.shutdown();
 		window.destroy();
 	}
 
-	// can this column be played?
-	private boolean isColumnPlayable(int column) {
-		return rack[0][column] == 0;
-	}
-
 	// just returns true if there's a 4-in-a-row
 	public boolean justWon(int columnPlayed, int rowPlayed) {
 		return findWinningAlignment(columnPlayed, rowPlayed) > 0;
@@ -174,77 +169,7 @@ public class ConnectFour {
 
 	// returns the bitwise-or of all alignments of a winning 4-in-a-row
 	public int findWinningAlignment(int columnPlayed, int rowPlayed) {
-		int result = 0;
-
-		//byte side = rack[columnPlayed][rowPlayed];
-		byte side = rack[rowPlayed][columnPlayed];
-
-		// horizontal
-		int count = 1;
-		for (int c = columnPlayed-1; c >= 0 && rack[rowPlayed][c] == side; c--){
-			count++;
-		}
-		for (int c = columnPlayed+1; c < numColumns && rack[rowPlayed][c] == side; c++){
-			count++;
-		}
-		if (count >= 4) {
-			result |= HORIZONTAL;
-		}
-
-		// vertical
-		count = 1;
-		for (int r=rowPlayed+1; r < numRows && rack[r][columnPlayed]==side; r++){
-			count++;
-		}
-		if (count >= 4) {
-			result |= VERTICAL;
-		}
-
-		// ascending
-		count = 1;
-		for (int c=columnPlayed-1,r=rowPlayed+1; c>=0 && r<numRows && rack[r][c]==side; c--,r++){
-			count++;
-		}
-		for (int c=columnPlayed+1,r=rowPlayed-1; c<numColumns && r>=0 && rack[r][c]==side; c++,r--){
-			count++;
-		}
-		if (count >= 4) {
-			result |= ASCENDING;
-		}
-
-		// descending
-		count = 1;
-		for (int c=columnPlayed-1,r=rowPlayed-1; c>=0 && r>=0 && rack[r][c]==side; c--,r--){
-			count++;
-		}
-		for (int c=columnPlayed+1,r=rowPlayed+1; c < numColumns && r< numRows && rack[r][c]==side; c++,r++){
-			count++;
-		}
-		if (count >= 4) result |= DESCENDING;
-
-		return result; // 0 if nothing
-	}
-
-	// place a token
-	private int dropToken(int column, byte side) {
-		if (!isColumnPlayable(column)){
-			return -1;
-		}
-
-		// determine how far it drops down
-		int row = 0;
-		for (row = 0; row < numRows-1; row++) {
-			if(rack[row+1][column] != 0){
-				break;
-			}
-		}
-
-		rack[row][column] = side;
-
-		// animate it!
-		animateDrop(column, row, side);
-
-		return row;
+		return ConnectFourGame.findWinningAlignment(rack, columnPlayed, rowPlayed);
 	}
 
 	// returns the mouse handler (for the human player)
@@ -263,10 +188,15 @@ public class ConnectFour {
 
 	// hovers a piece above the rack, as a possible play (-1 to erase)
 	public void hoverToken(int column, byte side) {
+		animator.draw(() -> drawHover(column, side));
+	}
+
+	// draws the hovering piece, on the animator's thread
+	private void drawHover(int column, byte side) {
 		// return if nothing's changed
 		if (column == hoveringToken) return;
 
-		window.copyBack();
+		window.copyDirty();
 
 		// erase the old one if necessary
 		if (column != hoveringToken && hoveringToken != -1) {
@@ -274,6 +204,7 @@ public class ConnectFour {
 		}
 
 		hoveringToken = column;
+		hoveringSide = side;
 
 		// and draw the new one
 		if (hoveringToken != -1) {
@@ -282,28 +213,34 @@ public class ConnectFour {
 		window.flip();
 	}
 
-	// draw one of the pieces dropping down
-	private void animateDrop(int column, int row, byte side) {
-		double delta = 0.0;
+	// one of the pieces dropping down, falling from above the rack as if under gravity
+	private class Drop implements Animator.Animation {
+		private final int column, row;
+		private final byte side;
+		private double y = -1.0; // where it was drawn last, in rows
+
+		Drop(int column, int row, byte side) {
+			this.column = column;
+			this.row = row;
+			this.side = side;
+		}
 
-		double y = -1.0;
-		while (y < row) {
-			window.copyBack();
+		public boolean frame(double seconds) {
+			window.copyDirty();
 
 			// do the math
 			double oldY = y;
-			y += delta;
-			if (y > row) y = row;
-			delta += DROP_RATE;
+			y = Math.min(row, -1.0 + DROP_ACCELERATION*seconds*seconds/2);
 
-			// do the erasing & drawing
+			// do the erasing & drawing (putting back the hovering piece if it was erased)
 			eraseArea(column, oldY, y);
+			if (hoveringToken == column) drawToken(hoveringSide, column, -1.0);
 			drawToken(side, column, y);
 			drawRackSection(column, oldY, y);
 
 			// animate
 			window.flip();
-			window.sleep(10);
+			return y >= row;
 		}
 	}
 
@@ -321,6 +258,7 @@ public class ConnectFour {
 			pen.drawImage(rackSpace, null, column*SPACE_SIZE, (i+1)*SPACE_SIZE);
 		}
 		pen.dispose();
+		window.markDirty(column*SPACE_SIZE, (start+1)*SPACE_SIZE, SPACE_SIZE, (end-start+1)*SPACE_SIZE);
 	}
 
 	// erase an area from the screen (so it can be redrawn)
@@ -336,6 +274,7 @@ public class ConnectFour {
 		pen.setColor(BACKGROUND_COLOR);
 		pen.fillRect(column*SPACE_SIZE, (start+1)*SPACE_SIZE, SPACE_SIZE, (end-start+1)*SPACE_SIZE);
 		pen.dispose();
+		window.markDirty(column*SPACE_SIZE, (start+1)*SPACE_SIZE, SPACE_SIZE, (end-start+1)*SPACE_SIZE);
 	}
 
 	// draw the rack (board)
@@ -356,6 +295,7 @@ public class ConnectFour {
 		Graphics2D pen = window.getPen();
 		pen.drawImage(image, null, column*SPACE_SIZE, (int)((row+1)*SPACE_SIZE));
 		pen.dispose();
+		window.markDirty(column*SPACE_SIZE, (int)((row+1)*SPACE_SIZE), SPACE_SIZE, SPACE_SIZE);
 	}
 
 	// draw a background-colored rectangle over a location
@@ -382,7 +322,7 @@ public class ConnectFour {
 		int margin = (SPACE_SIZE-holeSize)/2;
 
 		// make the images & interfaces
-		BufferedImage image = new BufferedImage(SPACE_SIZE, SPACE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage image = window.createCompatibleImage(SPACE_SIZE, SPACE_SIZE, Transparency.TRANSLUCENT);
 		Graphics2D pen = image.createGraphics();
 
 		// make the round shape, in the mask
@@ -401,7 +341,7 @@ public class ConnectFour {
 
 	// make the image of one of the tokens
 	private BufferedImage makeTokenPic(Color color) {
-		BufferedImage image = new BufferedImage(SPACE_SIZE, SPACE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage image = window.createCompatibleImage(SPACE_SIZE, SPACE_SIZE, Transparency.TRANSLUCENT);
 		Graphics2D pen = image.createGraphics();
 		pen.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
@@ -8,9 +8,22 @@ import java.io.*;
 import java.util.*;
 import javax.imageio.ImageIO;
 
+/**
+ * A window to draw in, with an optional back buffer for animation.
+ *
+ * Drawing that only changes part of the window can say so with
+ * {@link #markDirty}: {@link #flip()} then repaints only the marked areas,
+ * and {@link #copyDirty()} copies only what the buffers differ in, rather
+ * than the whole image as {@link #copyBack()} does. Without marks, both
+ * work on the whole window.
+ * The buffers are made compatible with the screen, so that copying between
+ * them and onto the screen can be done by the graphics hardware.
+ */
 public class GraphicsWindow extends Frame {
 	private BufferedImage image, backImage;
 	private int leftOffset, topOffset;
+	private Rectangle pending; // what was drawn on the back buffer since the last flip, or null if unmarked (so all of it)
+	private Rectangle stale;   // where the back buffer differs from the front one, or null if nowhere
 
 	/** 
 	 * Create a new <code>GraphicsWindow</code> to hold graphical
@@ -77,8 +90,8 @@ public class GraphicsWindow extends Frame {
 		setSize(width+leftOffset+insets.right, height+topOffset+insets.bottom);
 
 		// define the images inside the window (with no double buffering, they are aliases)
-		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		if (doDoubleBuffering) backImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image = createCompatibleImage(width, height, Transparency.OPAQUE);
+		if (doDoubleBuffering) backImage = createCompatibleImage(width, height, Transparency.OPAQUE);
 		else backImage = image;
 
 		// paint a black rectangle, as the first image
@@ -94,7 +107,58 @@ public class GraphicsWindow extends Frame {
 	 */
 
 	public void copyBack() {
-		backImage.createGraphics().drawImage(image, null, 0, 0);
+		if (backImage != image) backImage.createGraphics().drawImage(image, null, 0, 0);
+		stale = null;
+	}
+
+	/** 
+	 * Copies the front buffer to the back buffer like {@link #copyBack()},
+	 * but only the areas where they differ: those drawn in the frames flipped
+	 * since the last copy. Only safe if nothing has been drawn on the back
+	 * buffer since the last flip, and if every frame since the last copy
+	 * marked its drawing with {@link #markDirty}.
+	 */
+
+	public void copyDirty() {
+		if (stale != null && backImage != image) {
+			Graphics2D pen = backImage.createGraphics();
+			int x1 = stale.x, y1 = stale.y, x2 = stale.x + stale.width, y2 = stale.y + stale.height;
+			pen.drawImage(image, x1, y1, x2, y2, x1, y1, x2, y2, null);
+			pen.dispose();
+		}
+		stale = null;
+	}
+
+	/** 
+	 * Records that an area of the back buffer has been drawn on, so that the
+	 * next {@link #flip()} repaints only the areas marked since the last one.
+	 * Once anything is marked, everything drawn before the flip must be.
+	 * @param x the left edge of the area, in the active area's coordinates
+	 * @param y the top edge of the area
+	 * @param width the width of the area
+	 * @param height the height of the area
+	 */
+
+	public void markDirty(int x, int y, int width, int height) {
+		Rectangle area = new Rectangle(x, y, width, height).intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+		if (area.isEmpty()) area = new Rectangle(0, 0, 0, 0); // still counts as marking, so the flip repaints nothing extra
+		pending = (pending == null) ? area : union(pending, area);
+	}
+
+	/** 
+	 * Makes an image in the screen's format, which the graphics hardware can
+	 * draw quickly, e.g. for sprites drawn again and again.
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param transparency <code>Transparency.OPAQUE</code>, <code>BITMASK</code> or <code>TRANSLUCENT</code>
+	 * @return the new image
+	 */
+
+	public BufferedImage createCompatibleImage(int width, int height, int transparency) {
+		GraphicsConfiguration config = getGraphicsConfiguration();
+		if (config != null) return config.createCompatibleImage(width, height, transparency);
+		int type = (transparency == Transparency.OPAQUE) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+		return new BufferedImage(width, height, type);
 	}
 
 	/** 
@@ -125,10 +189,23 @@ public class GraphicsWindow extends Frame {
 	 */
 
 	public void flip() {
+		Rectangle drawn = (pending != null) ? pending : new Rectangle(0, 0, image.getWidth(), image.getHeight());
+		pending = null;
 		BufferedImage swap = backImage;
 		backImage = image;
 		image = swap;
-		repaint();
+
+		// the new front differs from what's showing where it was drawn on, and where it had missed the old front's drawing
+		Rectangle changed = (stale == null) ? drawn : union(stale, drawn);
+		if (backImage != image) stale = changed.isEmpty() ? null : changed;
+		if (!changed.isEmpty()) repaint(leftOffset + changed.x, topOffset + changed.y, changed.width, changed.height);
+	}
+
+	// the smallest rectangle holding two others, where an empty one holds nothing
+	private static Rectangle union(Rectangle a, Rectangle b) {
+		if (a.isEmpty()) return b;
+		if (b.isEmpty()) return a;
+		return a.union(b);
 	}
 
 	/** 
@@ -274,6 +351,7 @@ public class GraphicsWindow extends Frame {
 		pen = backImage.createGraphics();
 		pen.setColor(color);
 		pen.fillRect(0, 0, backImage.getWidth(), backImage.getHeight());
+		stale = null; // both buffers are the same again
 	}
 
 	/** 
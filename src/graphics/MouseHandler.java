@@ -3,6 +3,11 @@ package graphics;
  * This object is a tool to accompany the <code>GraphicsWindow</code>, when use
  * of a mouse is desired.
  *
+ * The mouse's state is written by the AWT event thread and read by the
+ * program's own threads, so it is all guarded by the handler's lock. A thread
+ * waiting for the mouse sleeps on that lock until an event or the closing of
+ * the window wakes it, so it reacts at once and uses no CPU while it waits.
+ *
  * @author      Adam A. Smith
  * @version     1.0
  */
@@ -10,23 +15,30 @@ package graphics;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class MouseHandler extends MouseAdapter {
 	private GraphicsWindow window;
 	private int clickX = -1, clickY = -1, releaseX = -1, releaseY = -1;
 	private int mouseX = -1, mouseY = -1;
-	private volatile boolean isMove = false, isClick = false;
+	private boolean isMove = false, isClick = false;
 	private int buttonPressed;
 
 	public MouseHandler(GraphicsWindow window) {
 		this.window = window;
+
+		// wake up any waiting thread when the window goes away
+		window.addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {wake();}
+			public void windowClosed(WindowEvent e) {wake();}
+		});
 	}
 
 	/**
 	 * Clears both clicks and movement.
 	 * @since 1.0
 	 */
-	public void clearAll() {
+	public synchronized void clearAll() {
 		clearClick();
 		clearMovement();
 	}
@@ -35,7 +47,7 @@ public class MouseHandler extends MouseAdapter {
 	 * Clears memory of the mouse clicking (but keeps the location data).
 	 * @since 1.0
 	 */
-	public void clearClick() {
+	public synchronized void clearClick() {
 		isClick = false;
 	}
 
@@ -43,7 +55,7 @@ public class MouseHandler extends MouseAdapter {
 	 * Clears memory of a move event (but keeps the position data).
 	 * @since 1.0
 	 */
-	public void clearMovement() {
+	public synchronized void clearMovement() {
 		isMove = false;
 	}
 
@@ -55,7 +67,7 @@ public class MouseHandler extends MouseAdapter {
 	 * @return the mouse-click coordinates, relative to the upper-left of the window's active area
 	 * @since 1.0
 	 */
-	public int[] getClick() {
+	public synchronized int[] getClick() {
 		if (clickX == -1) return null;
 		int[] coords = new int[2];
 		coords[0] = clickX;
@@ -71,7 +83,7 @@ public class MouseHandler extends MouseAdapter {
 	 * @return the button that was pressed
 	 * @since 1.0
 	 */
-	public int getClickButton() {
+	public synchronized int getClickButton() {
 		return buttonPressed;
 	}
 
@@ -81,7 +93,7 @@ public class MouseHandler extends MouseAdapter {
 	 * <code>GraphicsWindow</code>, or -1 if it is outside the region.
 	 * @since 1.0
 	 */
-	public int getClickX() {
+	public synchronized int getClickX() {
 		return clickX;
 	}
 
@@ -91,7 +103,7 @@ public class MouseHandler extends MouseAdapter {
 	 * <code>GraphicsWindow</code>, or -1 if it is outside the region.
 	 * @since 1.0
 	 */
-	public int getClickY() {
+	public synchronized int getClickY() {
 		return clickY;
 	}
 
@@ -100,7 +112,7 @@ public class MouseHandler extends MouseAdapter {
 	 * @return a 2D array indicating the mouse's location, or null if there is none
 	 * @since 1.0
 	 */
-	public int[] getPosition() {
+	public synchronized int[] getPosition() {
 		if (mouseX == -1) return null;
 		int[] coords = new int[2];
 		coords[0] = mouseX;
@@ -114,7 +126,7 @@ public class MouseHandler extends MouseAdapter {
 	 * <code>GraphicsWindow</code>, or -1 if it is outside the region.
 	 * @since 1.0
 	 */
-	public int getPositionX() {
+	public synchronized int getPositionX() {
 		return mouseX;
 	}
 
@@ -124,7 +136,7 @@ public class MouseHandler extends MouseAdapter {
 	 * <code>GraphicsWindow</code>, or -1 if it is outside the region.
 	 * @since 1.0
 	 */
-	public int getPositionY() {
+	public synchronized int getPositionY() {
 		return mouseY;
 	}
 
@@ -133,7 +145,7 @@ public class MouseHandler extends MouseAdapter {
 	 * @return true if the <code>GraphicsWindow</code> has been clicked on, otherwise false
 	 * @since 1.0
 	 */
-	public boolean isClick() {
+	public synchronized boolean isClick() {
 		return (isClick);
 	}
 
@@ -144,7 +156,7 @@ public class MouseHandler extends MouseAdapter {
 	 * through, otherwise false
 	 * @since 1.0
 	 */
-	public boolean isMovement() {
+	public synchronized boolean isMovement() {
 		return (isMove);
 	}
 
@@ -167,11 +179,12 @@ public class MouseHandler extends MouseAdapter {
 	 * @since 1.0
 	 */
 	@Override
-	public void mouseClicked(MouseEvent e) {
+	public synchronized void mouseClicked(MouseEvent e) {
 		clickX = window.translateWindowX(e.getX());
 		clickY = window.translateWindowY(e.getY());
 		buttonPressed = e.getButton();
 		isClick = true;
+		notifyAll();
 	}
 
 	/**
@@ -181,7 +194,7 @@ public class MouseHandler extends MouseAdapter {
 	 * @since 1.0
 	 */
 	@Override
-	public void mouseMoved(MouseEvent e) {
+	public synchronized void mouseMoved(MouseEvent e) {
 		int newX = window.translateWindowX(e.getX());
 		int newY = window.translateWindowY(e.getY());
 
@@ -190,6 +203,7 @@ public class MouseHandler extends MouseAdapter {
 			mouseX = newX;
 			mouseY = newY;
 			isMove = true;
+			notifyAll();
 		}
 	}
 
@@ -206,9 +220,10 @@ public class MouseHandler extends MouseAdapter {
 	 * @since 1.0
 	 */
 	@Override
-	public void mouseExited(MouseEvent e) {
+	public synchronized void mouseExited(MouseEvent e) {
 		mouseX = mouseY = -1;
 		isMove = true;
+		notifyAll();
 	}
 
 	/**
@@ -223,14 +238,23 @@ public class MouseHandler extends MouseAdapter {
 	}
 
 	/** 
-	 * Puts the program to sleep, until the mouse is clicked.
+	 * Puts the program to sleep, until the mouse is clicked within the
 	 * <code>GraphicsWindow</code>.
 	 * @since 1.0
 	 */
 	public void waitForClick() {
-		while (window.isDisplayable() && !isClick) {
-			GraphicsWindow.sleep(50); // sleep for 0.05s
-		}
+		waitForClick(0);
+	}
+
+	/** 
+	 * Puts the program to sleep, until the mouse is clicked within the
+	 * <code>GraphicsWindow</code>, or for at most some time.
+	 * @param millis the longest time to wait, in milliseconds, or 0 to wait for as long as it takes
+	 * @return true if there was a click, false if the time ran out, the
+	 * window was shut down or the thread was interrupted
+	 */
+	public synchronized boolean waitForClick(long millis) {
+		return await(millis, false);
 	}
 
 	/** 
@@ -239,8 +263,41 @@ public class MouseHandler extends MouseAdapter {
 	 * @since 1.0
 	 */
 	public void waitForMouse() {
-		while (window.isDisplayable() && !isMove && !isClick) {
-			GraphicsWindow.sleep(50); // sleep for 0.05s
+		waitForMouse(0);
+	}
+
+	/** 
+	 * Puts the program to sleep, until the mouse moves or is clicked within the
+	 * <code>GraphicsWindow</code>, or for at most some time.
+	 * @param millis the longest time to wait, in milliseconds, or 0 to wait for as long as it takes
+	 * @return true if there was a move or a click, false if the time ran out,
+	 * the window was shut down or the thread was interrupted
+	 */
+	public synchronized boolean waitForMouse(long millis) {
+		return await(millis, true);
+	}
+
+	// waits on the lock (which the caller holds) for a click, or any mouse event if movement counts too
+	private boolean await(long millis, boolean movement) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		try {
+			while (window.isDisplayable() && !isClick && !(movement && isMove)) {
+				if (millis <= 0) wait();
+				else {
+					long left = deadline - System.nanoTime();
+					if (left <= 0) break;
+					TimeUnit.NANOSECONDS.timedWait(this, left);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); // let the caller see it
 		}
+		return isClick || (movement && isMove);
+	}
+
+	// wakes up the threads waiting for the mouse, so they see the window's gone
+	private synchronized void wake() {
+		notifyAll();
 	}
 }
@@ -0,0 +1,184 @@
+package players;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Chooses moves for many games at once, e.g. on a server hosting thousands
+ * of them. Positions are queued on a fixed pool of threads, each with its
+ * own {@link SearchEngine}, and every engine stores its results in one shared
+ * {@link TranspositionTable}. So the number of threads depends on the pool,
+ * not on the number of games, and games that reach the same positions save
+ * each other work.
+ *
+ * Each position has its own time budget, counted from when it is submitted,
+ * so time spent waiting for a free thread comes out of the budget. Budgets
+ * are kept by {@link SearchMode#ITERATIVE_DEEPENING}, which plays the move of
+ * the deepest search finished in time; the other modes search to the full
+ * depth whatever the budget. A search always finishes at least one ply.
+ *
+ * A pool searches positions of one board size and connect length, fixed
+ * when it is constructed, and refuses others. Position keys don't record
+ * either, so positions of different boards could meet in one table; but
+ * within one board, the table's values don't depend on which game or side
+ * a position came from, so sharing it gives the same moves as searching
+ * each game alone. For the same reason, don't share the table with searches
+ * of other boards.
+ */
+public final class BatchSearch {
+	private final int width, height, connect;
+	private final ExecutorService pool;
+	private final BlockingQueue<SearchEngine> idle; // engines not searching right now
+	private final SearchEngine[] engines;
+
+	/**
+	 * Constructs a pool for the standard board that searches by iterative
+	 * deepening, with a shared table of the default size.
+	 * @param threads the number of positions to search at once
+	 * @param maxDepth the deepest any search may go
+	 */
+	public BatchSearch(int threads, int maxDepth) {
+		this(threads, maxDepth, SearchMode.ITERATIVE_DEEPENING, new TranspositionTable());
+	}
+
+	/**
+	 * Constructs a pool for the standard board.
+	 * @param threads the number of positions to search at once
+	 * @param maxDepth the number of plies to look ahead
+	 * @param mode the search algorithm to use
+	 * @param table the table to share between the threads, or null for none
+	 */
+	public BatchSearch(int threads, int maxDepth, SearchMode mode, TranspositionTable table) {
+		this(threads, maxDepth, mode, table, Position.WIDTH, Position.HEIGHT, Position.CONNECT);
+	}
+
+	/**
+	 * Constructs a pool.
+	 * @param threads the number of positions to search at once
+	 * @param maxDepth the number of plies to look ahead
+	 * @param mode the search algorithm to use
+	 * @param table the table to share between the threads, or null for none
+	 * @param width the number of columns of every position
+	 * @param height the number of rows of every position
+	 * @param connect the length of a winning line in every position
+	 * @throws IllegalArgumentException if the board is too big for a bitboard
+	 */
+	public BatchSearch(int threads, int maxDepth, SearchMode mode, TranspositionTable table, int width, int height, int connect) {
+		if (threads < 1) throw new IllegalArgumentException("Need at least 1 thread, not " +threads);
+		if (!Position.fits(width, height)) throw new IllegalArgumentException("Board too big to search in a batch: " +width+ "x" +height);
+		this.width = width;
+		this.height = height;
+		this.connect = connect;
+		pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "connect-four-batch");
+			thread.setDaemon(true); // don't keep the server alive once it's done
+			return thread;
+		});
+		engines = new SearchEngine[threads];
+		idle = new ArrayBlockingQueue<SearchEngine>(threads);
+		for (int i = 0; i < threads; i++) {
+			engines[i] = new SearchEngine(Math.max(1, maxDepth), mode);
+			engines[i].setTranspositionTable(table);
+			idle.add(engines[i]);
+		}
+	}
+
+	/**
+	 * Sets an opening book for every thread. Call it before submitting.
+	 * @param book the book, or null to always search
+	 */
+	public void setOpeningBook(PositionDatabase book) {
+		for (SearchEngine engine : engines) engine.setOpeningBook(book);
+	}
+
+	/**
+	 * Sets an endgame tablebase for every thread. Call it before submitting.
+	 * @param tablebase an exact database, or null to always search
+	 */
+	public void setTablebase(PositionDatabase tablebase) {
+		for (SearchEngine engine : engines) engine.setTablebase(tablebase);
+	}
+
+	/**
+	 * Sets the heuristic of every thread. Call it before submitting.
+	 * @param factory makes an evaluator for each thread
+	 */
+	public void setEvaluator(Evaluator.Factory factory) {
+		for (SearchEngine engine : engines) engine.setEvaluatorFactory(factory);
+	}
+
+	/**
+	 * Queues a position to be searched.
+	 * @param position the position, with the side to move to play (copied, so it may be changed afterwards)
+	 * @param millis the time budget in milliseconds, or 0 for no limit
+	 * @return the column chosen for the side to move and the search's statistics, once found
+	 * @throws IllegalArgumentException if the position's board or connect length isn't the pool's
+	 */
+	public CompletableFuture<SearchResult> submit(Position position, long millis) {
+		if (position.getWidth() != width || position.getHeight() != height || position.getConnect() != connect) {
+			throw new IllegalArgumentException("Can't search a " +position.getWidth()+ "x" +position.getHeight()+ " connect-"
+					+position.getConnect()+ " position in a pool for " +width+ "x" +height+ " connect-" +connect);
+		}
+		if (millis < 0) throw new IllegalArgumentException("Negative time budget: " +millis);
+		Position root = new Position(position);
+		long deadline = (millis > 0) ? System.nanoTime() + millis*1000000L : 0;
+		return CompletableFuture.supplyAsync(() -> search(root, deadline), pool);
+	}
+
+	/**
+	 * Queues a rack to be searched, as ConnectFourPlayer.getNextPlay() would.
+	 * @param rack the rack, row 0 at the top (copied, so it may be changed afterwards)
+	 * @param side the side to move, -1 or 1
+	 * @param millis the time budget in milliseconds, or 0 for no limit
+	 * @return the column chosen and the search's statistics, once found
+	 * @throws IllegalArgumentException if the rack isn't the size of the pool's board
+	 */
+	public CompletableFuture<SearchResult> submit(byte[][] rack, byte side, long millis) {
+		if (rack.length != height || rack[0].length != width) {
+			throw new IllegalArgumentException("Can't search a " +rack[0].length+ "x" +rack.length+ " rack in a pool for " +width+ "x" +height);
+		}
+		return submit(Position.fromRack(rack, side, connect), millis);
+	}
+
+	/**
+	 * Queues many positions at once.
+	 * @param positions the positions
+	 * @param millis the time budget of each position, at the same index
+	 * @return the results, at the same indexes as the positions
+	 */
+	public List<CompletableFuture<SearchResult>> submitAll(List<Position> positions, long[] millis) {
+		if (positions.size() != millis.length) {
+			throw new IllegalArgumentException(positions.size()+ " positions but " +millis.length+ " time budgets");
+		}
+		List<CompletableFuture<SearchResult>> results = new ArrayList<CompletableFuture<SearchResult>>(millis.length);
+		for (int i = 0; i < millis.length; i++) results.add(submit(positions.get(i), millis[i]));
+		return results;
+	}
+
+	/**
+	 * Stops the threads. Searches not yet started are dropped, and the pool
+	 * can't be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	// searches on a free engine, with what is left of the budget
+	private SearchResult search(Position root, long deadline) {
+		SearchEngine engine = idle.poll(); // never empty: there are as many engines as threads
+		try {
+			long left = (deadline == 0) ? 0 : Math.max(1, (deadline - System.nanoTime()) / 1000000L);
+			engine.setTimeBudget(left);
+			int column = engine.bestMove(root);
+			return new SearchResult(column, engine.getStatistics());
+		}
+		finally {
+			idle.add(engine);
+		}
+	}
+}
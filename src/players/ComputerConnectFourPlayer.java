@@ -4,21 +4,197 @@ import java.lang.Math;
 import java.util.ArrayList;
 //import Move;
 
+/**
+* A computer player. It searches the rack it is given to a fixed depth with
+* the chosen SearchMode, scoring positions with a window heuristic.
+*
+* Racks are searched on a bitboard Position when the board fits in one
+* (width*(height+1) cells at most 64, so 7x6 and 8x7 but not 9x7). There is
+* no bitboard for bigger boards: they are searched rack by rack, with plain
+* miniMax in MINIMAX mode and alpha-beta in the alpha-beta modes, which
+* keeps the time budget in ITERATIVE_DEEPENING mode. That search uses one
+* thread and no transposition table, opening book or tablebase, whatever
+* the player was given, and it can't solve or ponder: SOLVE mode and
+* pondering throw an IllegalArgumentException on such a board.
+*/
 public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 
 	private int side; //comupter side
 	private int otherSide;
 	private int maxDepth;
+	private int connect = Position.CONNECT; //the length of a winning line
+	private SearchMode mode;
+	private SearchEngine engine;
+	private TranspositionTable table; //the table the engine searches with, or null for none
+	private boolean tableChosen; //false until a table is set or the default one is made
+	private Ponderer ponderer; //searches on the opponent's time, or null
+	private long timeBudget; //milliseconds per move in ITERATIVE_DEEPENING mode, or 0 for no limit
+	private long rackNodes; //positions visited by the last rack-based search
+	private long rackLeaves; //positions it scored without searching further
+	private long rackCutoffs; //alpha-beta cutoffs in the last rack-based search
+	private int rackMaxPly; //the deepest ply it visited
+	private long rackDeadline; //System.nanoTime() at which a rack-based search stops, or 0 for no limit
+	private boolean rackStopped; //true once the rack-based search has run out of time
+	private SearchStatistics rackStatistics; //the last search's statistics, if it was rack-based
 
 	/**
-	* Constructor for the computer player.
+	* Constructor for the computer player. It searches with alpha-beta pruning,
+	* which picks the same moves as plain miniMax.
 	* @param depth the number of plies to look ahead
 	* @param side -1 or 1, depending on which player this is
 	*/
 	public ComputerConnectFourPlayer(int depth, byte side) {
+		this(depth, side, SearchMode.ALPHA_BETA);
+	}
+
+	/**
+	* Constructor for the computer player.
+	* @param depth the number of plies to look ahead
+	* @param side -1 or 1, depending on which player this is
+	* @param mode the search algorithm to use; SOLVE plays perfectly, whatever the depth
+	*/
+	public ComputerConnectFourPlayer(int depth, byte side, SearchMode mode) {
 		this.side = side;
 		otherSide = (-1)*side;
-		maxDepth = depth;
+		maxDepth = Math.max(1, depth); //always look at least one ply ahead
+		this.mode = mode;
+		engine = new SearchEngine(maxDepth, mode);
+	}
+
+	/**
+	* Sets how long each move may take in ITERATIVE_DEEPENING mode. The search
+	* deepens until the budget runs out, but never past the player's depth.
+	* @param millis the budget in milliseconds, or 0 for no time limit
+	*/
+	public void setTimeBudget(long millis) {
+		timeBudget = millis;
+		engine.setTimeBudget(millis);
+		refreshPonderer();
+	}
+
+	/**
+	* Sets how many threads the alpha-beta modes search with. The first move
+	* at the root is searched alone, and the others are then split between the
+	* threads, which share the transposition table. The moves chosen are the
+	* same as with one thread.
+	* @param threads the number of threads; 1 (the default) searches on the calling thread
+	*/
+	public void setThreads(int threads) {
+		engine.setThreads(threads);
+	}
+
+	/**
+	* Replaces the transposition table the search stores its results in, e.g.
+	* to change its size or replacement policy, or to share one between players.
+	* The table is thread-safe, so players searching on different threads may
+	* share one, as long as they play the same mode with the same heuristic.
+	* @param table the table to use, or null to search without one
+	*/
+	public void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+		tableChosen = true;
+		engine.setTranspositionTable(table);
+		refreshPonderer();
+	}
+
+	/**
+	* Returns the transposition table the search stores its results in. If
+	* none has been set, the player makes its default one now: 16 MB for the
+	* alpha-beta modes, the solver's 64 MB for SOLVE, and none for MINIMAX.
+	* Otherwise the default table is only made by the first search, so that
+	* players given a shared table never allocate their own.
+	* @return the table, or null if the player searches without one
+	*/
+	public TranspositionTable getTranspositionTable() {
+		if (!tableChosen) {
+			if (mode == SearchMode.SOLVE) {
+				table = new TranspositionTable(Solver.DEFAULT_MEGABYTES, TranspositionTable.Replacement.DEPTH_PREFERRED);
+			}
+			else if (mode != SearchMode.MINIMAX) {
+				table = new TranspositionTable();
+			}
+			tableChosen = true;
+			engine.setTranspositionTable(table);
+		}
+		return table;
+	}
+
+	/**
+	* Forgets the killer moves and history counts the search carries over from
+	* one move to the next, so that the next search orders its moves as a new
+	* player's would. Together with clearing the transposition table, this
+	* starts the next search cold without making a new player.
+	*/
+	public void resetMoveOrdering() {
+		engine.resetMoveOrdering();
+	}
+
+	/**
+	* Replaces the heuristic the search scores positions with. Don't share a
+	* transposition table between players with different heuristics.
+	* @param factory makes an evaluator for each searching thread
+	*/
+	public void setEvaluator(Evaluator.Factory factory) {
+		engine.setEvaluatorFactory(factory);
+		refreshPonderer();
+	}
+
+	/**
+	* Scores positions with the window heuristic, weighted differently from
+	* the 1/10/100 of evaluate().
+	* @param weights the weights to use
+	*/
+	public void setEvaluationWeights(EvaluationWeights weights) {
+		setEvaluator((width, height, connect) -> new IncrementalEvaluator(width, height, connect, weights));
+	}
+
+	/**
+	* Sets an opening book, e.g. one written by tools.OpeningBookGenerator.
+	* Positions found in it are played from the book without searching.
+	* @param book the book, or null to always search
+	*/
+	public void setOpeningBook(PositionDatabase book) {
+		engine.setOpeningBook(book);
+		refreshPonderer();
+	}
+
+	/**
+	* Sets an endgame tablebase, e.g. one written by tools.TablebaseGenerator.
+	* Positions found in it aren't searched: they are scored as the win, loss
+	* or draw it records, so the computer plays them perfectly.
+	* @param tablebase an exact database, or null to always search
+	*/
+	public void setTablebase(PositionDatabase tablebase) {
+		engine.setTablebase(tablebase);
+		refreshPonderer();
+	}
+
+	/**
+	* Turns pondering on or off. A pondering player searches the likely
+	* replies to its move on a background thread until the opponent moves,
+	* storing the results in its transposition table, so that it answers
+	* the reply that comes at once, or nearly so. It chooses the same moves.
+	* Only boards that fit a bitboard can be pondered: getNextPlay() throws an
+	* IllegalArgumentException for a bigger rack while pondering is on.
+	* @param pondering true to search on the opponent's time
+	* @throws IllegalStateException if the player doesn't search with alpha-beta
+	*/
+	public void setPondering(boolean pondering) {
+		if (pondering && mode != SearchMode.ALPHA_BETA && mode != SearchMode.ITERATIVE_DEEPENING) {
+			throw new IllegalStateException("Only the alpha-beta modes can ponder, not " +mode);
+		}
+		if (ponderer != null) ponderer.cancel();
+		if (pondering) getTranspositionTable(); //the ponderer's engine shares it
+		ponderer = pondering ? new Ponderer(engine.copy()) : null;
+	}
+
+	/**
+	* Sets how many tokens in a row win, e.g. 5 for connect-5.
+	* @param connect the length of a winning line (4 by default)
+	*/
+	public void setConnectLength(int connect) {
+		if (connect < 2) throw new IllegalArgumentException("Can't play connect-" +connect);
+		this.connect = connect;
 	}
 
 	/**
@@ -30,6 +206,34 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 		return miniMax(rack);
 	}
 
+	/**
+	* Chooses a column like getNextPlay, and also reports the work the search
+	* did: nodes visited, leaf evaluations, cutoffs, transposition table hits,
+	* the depth reached and the time taken.
+	* @param rack the current rack
+	* @return the column to play and the search statistics
+	*/
+	public SearchResult getNextPlayWithStatistics(byte[][] rack) {
+		int column = miniMax(rack);
+		return new SearchResult(column, (rackStatistics != null) ? rackStatistics : engine.getStatistics());
+	}
+
+	/**
+	* Returns how many positions the last call to getNextPlay visited, so the
+	* search modes can be compared.
+	* @return the node count of the last search
+	*/
+	public long getNodeCount() {
+		return (rackStatistics != null) ? rackStatistics.getNodes() : engine.getNodeCount();
+	}
+
+	/**
+	* Gives the ponderer the engine's new settings.
+	*/
+	private void refreshPonderer() {
+		if (ponderer != null) setPondering(true);
+	}
+
 	/**
 	* This prints the rack for debugging purposes
 	* @param rack the current rack
@@ -49,12 +253,143 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 
 	/**
 	* Assesses a rack using the miniMax algorithm with the specified depth cutoffTest
-	* and returns the optimal move to make.
+	* and returns the optimal move to make. The search runs on a bitboard
+	* Position, so no rack is copied or rescanned along the way. A rack too
+	* big for a bitboard is searched rack by rack instead.
 	* @param rack the current rack
 	* @return the optimal move to make (integer of the column to play)
 	*/
 	private int miniMax(byte[][] rack){
-		Move bestMove = maxVal(rack, 0, maxDepth);
+		if (Position.fits(rack[0].length, rack.length)) {
+			rackStatistics = null;
+			getTranspositionTable();
+			Position root = Position.fromRack(rack, side, connect);
+			if (ponderer != null) ponderer.stop(root);
+			int column = engine.bestMove(root);
+			if (ponderer != null) ponderer.start(root, column);
+			return column;
+		}
+		return rackSearch(rack);
+	}
+
+	/**
+	* Searches a rack too big for a bitboard, in the player's mode: plain
+	* miniMax for MINIMAX, otherwise alpha-beta, which picks the same column.
+	* ITERATIVE_DEEPENING searches one ply deeper at a time until the time
+	* budget runs out, and plays the column of the deepest search finished.
+	* @param rack the current rack
+	* @return the column to play
+	* @throws IllegalArgumentException in SOLVE mode, or if the player ponders
+	*/
+	private int rackSearch(byte[][] rack){
+		String size = rack[0].length + "x" + rack.length;
+		if (mode == SearchMode.SOLVE) throw new IllegalArgumentException("Can't solve a " +size+ " rack: only boards that fit a bitboard can be solved");
+		if (ponderer != null) throw new IllegalArgumentException("Can't ponder on a " +size+ " rack: only boards that fit a bitboard can be pondered");
+
+		long start = System.nanoTime();
+		rackLeaves = 0;
+		rackCutoffs = 0;
+		rackMaxPly = 0;
+		rackStopped = false;
+		int column;
+		int depth = maxDepth;
+		if (mode == SearchMode.MINIMAX) {
+			column = rackMiniMax(rack);
+		}
+		else if (mode == SearchMode.ALPHA_BETA || timeBudget == 0) {
+			rackNodes = 0;
+			rackDeadline = 0;
+			column = rackAlphaBeta(rack, maxDepth);
+		}
+		else {
+			//deepen until the time runs out; the first ply is always finished
+			rackNodes = 0;
+			rackDeadline = start + timeBudget*1000000L;
+			column = rackAlphaBeta(rack, 1);
+			for (depth = 2; depth <= maxDepth; depth++) {
+				int deeper = rackAlphaBeta(rack, depth);
+				if (rackStopped) break;
+				column = deeper;
+			}
+			depth--;
+		}
+		rackStatistics = new SearchStatistics(rackNodes, rackLeaves, rackCutoffs, 0, rackMaxPly, depth, System.nanoTime() - start); //no table, so no hits
+		return column;
+	}
+
+	/**
+	* Picks a column with alpha-beta pruning, searching the columns from left
+	* to right so that it keeps the leftmost of equal columns, as maxVal does.
+	* @param rack the current rack
+	* @param limit the number of plies to look ahead
+	* @return the column to play
+	*/
+	private int rackAlphaBeta(byte[][] rack, int limit){
+		rackNodes++;
+		int actions[] = actions(rack);
+		int value = Integer.MIN_VALUE;
+		int action = actions[0];
+		for (int i = 0; i < actions.length; i++){
+			//only a value above the best so far matters, so search with the best as alpha
+			int u = alphaBetaValue(result(rack, actions[i], side), 1, limit, value, Integer.MAX_VALUE, false);
+			if (u > value){
+				value = u;
+				action = actions[i];
+			}
+		}
+		return action;
+	}
+
+	/**
+	* Calculates the value of a rack for the player with alpha-beta pruning.
+	* A value at or below alpha, or at or above beta, is only a bound.
+	* @param rack the current rack
+	* @param depth the current depth of the search
+	* @param limit the depth to stop at
+	* @param alpha the value the player is already sure of
+	* @param beta the value the opponent is already sure of
+	* @param max true if the player moves next
+	* @return the value of the rack, or a bound on it
+	*/
+	private int alphaBetaValue(byte[][] rack, int depth, int limit, int alpha, int beta, boolean max){
+		rackNodes++;
+		rackMaxPly = Math.max(rackMaxPly, depth);
+		if (terminalTest(rack) || depth >= limit){
+			rackLeaves++;
+			return evaluate(rack);
+		}
+		//give up once the time budget has run out, checking the clock every 1024 nodes
+		if (rackStopped || (rackDeadline != 0 && (rackNodes & 1023) == 0 && System.nanoTime() > rackDeadline)){
+			rackStopped = true;
+			return 0;
+		}
+
+		int actions[] = actions(rack);
+		for (int i = 0; i < actions.length; i++){
+			int u = alphaBetaValue(result(rack, actions[i], max ? side : otherSide), depth + 1, limit, alpha, beta, !max);
+			if (max && u > alpha){
+				alpha = u;
+			}
+			else if (!max && u < beta){
+				beta = u;
+			}
+			if (alpha >= beta){
+				rackCutoffs++;
+				break;
+			}
+		}
+		return max ? alpha : beta;
+	}
+
+	/**
+	* The original rack-based miniMax search. It is kept as a reference for
+	* checking the bitboard search, which must choose the same moves.
+	* @param rack the current rack
+	* @return the optimal move to make (integer of the column to play)
+	*/
+	int rackMiniMax(byte[][] rack){
+		rackNodes = 0;
+		Move bestMove = maxVal(rack, 0, 0);
 		return bestMove.getAction();
 	}
 
@@ -67,8 +402,11 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 	* @return the best move to take looking ahead the indicated depth
 	*/
 	private Move maxVal(byte[][] rack, int previousAction, int depth){
+		rackNodes++;
+		rackMaxPly = Math.max(rackMaxPly, depth);
 		//if the rack has a winner or has hit the max depth, return the current utility
-		if (terminalTest(rack) || depth > maxDepth){
+		if (terminalTest(rack) || depth >= maxDepth){
+			rackLeaves++;
 			Move m = new Move(evaluate(rack), previousAction);
 			return m;
 		}
@@ -79,7 +417,7 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 
 		for (int i = 0; i < actions.length; i++){
 			//Recursively compute the highest possible utility (for MAX) if MAX were to take this action
-			int u = minVal(result(rack, actions[i], side), actions[i], depth).getValue();
+			int u = minVal(result(rack, actions[i], side), actions[i], depth + 1).getValue();
 			if (u > value){
 				value = u;
 				action = actions[i];
@@ -100,8 +438,11 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 	* @return the best move to take looking ahead the indicated depth
 	*/
 	private Move minVal(byte[][] rack, int previousAction, int depth){
+		rackNodes++;
+		rackMaxPly = Math.max(rackMaxPly, depth);
 		//if the rack has a winner or has hit the max depth, return the current utility
-		if (terminalTest(rack) || depth > maxDepth){
+		if (terminalTest(rack) || depth >= maxDepth){
+			rackLeaves++;
 			Move m = new Move(evaluate(rack), previousAction);
 			return m;
 		}
@@ -109,7 +450,7 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 		int action = 0;
 		//collect all possible actions user could make.
 		int actions[] = actions(rack);
-		//update the depth every 2 ply
+		//one more ply searched
 		int thisdepth = depth + 1;
 
 		for (int i = 0; i < actions.length; i++){
@@ -131,9 +472,10 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 	* @param rack the current rack
 	* @return true if rack contains a win or if rack is full, otherwise false.
 	*/
-	private boolean terminalTest(byte[][] rack){
-		//game over if someone won
-		if(Math.abs(evaluate(rack)) > 100000){
+	boolean terminalTest(byte[][] rack){
+		//game over if someone won (Math.abs() can't be used: it leaves Integer.MIN_VALUE negative)
+		int score = evaluate(rack);
+		if(score == Integer.MAX_VALUE || score == Integer.MIN_VALUE){
 			return true;
 		}
 
@@ -163,252 +505,51 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 	* @param rack the current rack
 	* @return an integer heuristic of the rack
 	*/
-	private int evaluate(byte[][] rack){
+	int evaluate(byte[][] rack){
 
 		//get rack size
 		int height = rack.length;
 		int width = rack[0].length;
 
-		boolean won = false;
 		int score = 0; //the score to be returned
 
-		//horizontal
-		int hAI;
-		int hOpp;
-		for(int h = 0; h < height; h++){ //in each row
-			for(int w = 0; w <= (width/2); w++){ //4 possible horizontal wins
-				hAI = 0;
-				hOpp = 0;
-				for(int i = 0; i < 4; i ++){ //check 4 positions
-					if(rack[h][w+i] == side){
-						hAI++;
-					}
-					else if(rack[h][w+i] == otherSide){
-						hOpp++;
-					}
-				}
-
-				if(hAI == 4){
-					//All four tokens were AI... AI wins
-					score = Integer.MAX_VALUE;
-					won = true;
-					h = height+1;
-					w = width+1;
-					break;
-				}
-				else if(hAI == 3 && hOpp == 0){
-					//If it has 3 tokens of the AI's color and none of the opponent's, it is worth 100 points.
-					score += 100;
-				}
-				else if(hAI == 2 && hOpp == 0){
-					//If it has 2 tokens of the AI's color and none of the opponent's, it is worth 10 points.
-					score += 10;
-				}
-				else if(hAI == 1 && hOpp == 0){
-					//If it has 1 token of the AI's color and none of the opponent's, it is worth 1 points.
-					score += 1;
-				}
-				else if(hOpp == 4){
-					//All four tokens were opponent's... opponent wins
-					score = Integer.MIN_VALUE;
-					won = true;
-					h = height+1;
-					w = width+1;
-					break;
-				}
-				else if(hOpp == 3 && hAI == 0){
-					//3 of the opponent's tokens but none of the AI's should be worth -100 points.
-					score -= 100;
-				}
-				else if(hOpp == 2 && hAI == 0){
-					//2 of the opponent's tokens but none of the AI's should be worth -10 points.
-					score -= 10;
-				}
-				else if(hOpp == 1 && hAI == 0){
-					//2 of the opponent's tokens but none of the AI's should be worth -1 points.
-					score -= 1;
-				}
-				//If it has no tokens, or it has a mix of the AI's and the opponent's tokens, it is worth 0 points.
-			}
-		}
-
-		//vertical
-		if(won == false){
-			int vAI;
-			int vOpp;
-			for(int w = 0; w < width; w++){
-				for(int h = 0; h < (height/2); h ++){
-					vAI = 0;
-					vOpp = 0;
-					for(int i = 0; i < 4; i++){
-						if(rack[h+i][w] == side){
-							vAI++;
-						}
-						else if(rack[h+i][w] == otherSide){
-							vOpp++;
-						}
-					}
-					if(vAI == 4){
-						//All four tokens were AI... AI wins
-						score = Integer.MAX_VALUE;
-						won = true;
-						h = height+1;
-						w = width+1;
-						break;
-					}
-					else if(vAI == 3 && vOpp == 0){
-						//If it has 3 tokens of the AI's color and none of the opponent's, it is worth 100 points.
-						score += 100;
-					}
-					else if(vAI == 2 && vOpp == 0){
-						//If it has 2 tokens of the AI's color and none of the opponent's, it is worth 10 points.
-						score += 10;
-					}
-					else if(vAI == 1 && vOpp == 0){
-						//If it has 1 token of the AI's color and none of the opponent's, it is worth 1 points.
-						score += 1;
-					}
-					else if(vOpp == 4){
-						//All four tokens were opponent's... opponent wins
-						score = Integer.MIN_VALUE;
-						won = true;
-						h = height+1;
-						w = width+1;
-						break;
-					}
-					else if(vOpp == 3 && vAI == 0){
-						//3 of the opponent's tokens but none of the AI's should be worth -100 points.
-						score -= 100;
-					}
-					else if(vOpp == 2 && vAI == 0){
-						//2 of the opponent's tokens but none of the AI's should be worth -10 points.
-						score -= 10;
-					}
-					else if(vOpp == 1 && vAI == 0){
-						//2 of the opponent's tokens but none of the AI's should be worth -1 points.
-						score -= 1;
+		//every window as long as a winning line, in each direction: {row step, column step}
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {-1, 1}}; //horizontal, vertical, descending, ascending
+		for(int[] d : directions){
+			for(int h = 0; h < height; h++){
+				for(int w = 0; w < width; w++){
+					int lastH = h + (connect-1)*d[0];
+					int lastW = w + (connect-1)*d[1];
+					if(lastH < 0 || lastH >= height || lastW >= width){
+						continue; //the window runs off the rack
 					}
-					//If it has no tokens, or it has a mix of the AI's and the opponent's tokens, it is worth 0 points.
-				}
-			}
-		}
-
-		//descending
-		if(won == false){
-			int dAI;
-			int dOpp;
-			for(int h = 0; h <= (height/2); h++){
-				for(int w = 0; w <= (width/2); w++){
-					dAI = 0;
-					dOpp = 0;
-					for(int i = 0; i < 3; i++){
-						if(rack[h+i][w+i] == side){
-							dAI++;
+					int ai = 0;
+					int opp = 0;
+					for(int i = 0; i < connect; i++){
+						byte token = rack[h + i*d[0]][w + i*d[1]];
+						if(token == side){
+							ai++;
 						}
-						else if(rack[h+i][w+i] == otherSide){
-							dOpp++;
+						else if(token == otherSide){
+							opp++;
 						}
 					}
-					if(dAI == 4){
-						//All four tokens were AI... AI wins
-						score = Integer.MAX_VALUE;
-						won = true;
-						h = height+1;
-						w = width+1;
-						break;
-					}
-					else if(dAI == 3 && dOpp == 0){
-						//If it has 3 tokens of the AI's color and none of the opponent's, it is worth 100 points.
-						score += 100;
-					}
-					else if(dAI == 2 && dOpp == 0){
-						//If it has 2 tokens of the AI's color and none of the opponent's, it is worth 10 points.
-						score += 10;
-					}
-					else if(dAI == 1 && dOpp == 0){
-						//If it has 1 token of the AI's color and none of the opponent's, it is worth 1 points.
-						score += 1;
-					}
-					else if(dOpp == 4){
-						//All four tokens were opponent's... opponent wins
-						score = Integer.MIN_VALUE;
-						won = true;
-						h = height+1;
-						w = width+1;
-						break;
-					}
-					else if(dOpp == 3 && dAI == 0){
-						//3 of the opponent's tokens but none of the AI's should be worth -100 points.
-						score -= 100;
-					}
-					else if(dOpp == 2 && dAI == 0){
-						//2 of the opponent's tokens but none of the AI's should be worth -10 points.
-						score -= 10;
-					}
-					else if(dOpp == 1 && dAI == 0){
-						//2 of the opponent's tokens but none of the AI's should be worth -1 points.
-						score -= 1;
-					}
-					//If it has no tokens, or it has a mix of the AI's and the opponent's tokens, it is worth 0 points.
-				}
-			}
-		}
 
-		//ascending
-		if(won == false){
-			int aAI;
-			int aOpp;
-			for(int h = (height/2); h < height; h++){
-				for(int w = 0; w <= (width/2); w++){
-					aAI = 0;
-					aOpp = 0;
-					for (int i = 0; i <= 3; i++){
-						if(rack[h-i][w+i] == side){
-							aAI++;
-						}
-						else if(rack[h-i][w+i] == otherSide){
-							aOpp++;
-						}
-					}
-					if(aAI == 4){
-						//All four tokens were AI... AI wins
-						score = Integer.MAX_VALUE;
-						won = true;
-						h = height+1;
-						w = width+1;
-						break;
+					if(ai == connect){
+						//All the tokens were AI... AI wins
+						return Integer.MAX_VALUE;
 					}
-					else if(aAI == 3 && aOpp == 0){
-						//If it has 3 tokens of the AI's color and none of the opponent's, it is worth 100 points.
-						score += 100;
+					else if(opp == connect){
+						//All the tokens were opponent's... opponent wins
+						return Integer.MIN_VALUE;
 					}
-					else if(aAI == 2 && aOpp == 0){
-						//If it has 2 tokens of the AI's color and none of the opponent's, it is worth 10 points.
-						score += 10;
+					else if(opp == 0){
+						//Only the AI's tokens: worth 100, 10 or 1 points as it is 1, 2 or 3 tokens short of a line.
+						score += windowValue(ai);
 					}
-					else if(aAI == 1 && aOpp == 0){
-						//If it has 1 token of the AI's color and none of the opponent's, it is worth 1 points.
-						score += 1;
-					}
-					else if(aOpp == 4){
-						//All four tokens were opponent's... opponent wins
-						score = Integer.MIN_VALUE;
-						won = true;
-						h = height+1;
-						w = width+1;
-						break;
-					}
-					else if(aOpp == 3 && aAI == 0){
-						//3 of the opponent's tokens but none of the AI's should be worth -100 points.
-						score -= 100;
-					}
-					else if(aOpp == 2 && aAI == 0){
-						//2 of the opponent's tokens but none of the AI's should be worth -10 points.
-						score -= 10;
-					}
-					else if(aOpp == 1 && aAI == 0){
-						//2 of the opponent's tokens but none of the AI's should be worth -1 points.
-						score -= 1;
+					else if(ai == 0){
+						//Only the opponent's tokens: worth -100, -10 or -1 points in the same way.
+						score -= windowValue(opp);
 					}
 					//If it has no tokens, or it has a mix of the AI's and the opponent's tokens, it is worth 0 points.
 				}
@@ -419,12 +560,29 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 		return score;
 	}
 
+	/**
+	* The value of a window holding tokens of one side only.
+	* @param tokens the number of tokens in it
+	* @return 100, 10 or 1 for a window 1, 2 or 3 tokens short of a line, otherwise 0
+	*/
+	private int windowValue(int tokens){
+		if(tokens == 0){
+			return 0; //an empty window is worth nothing, even when it is only 3 cells long
+		}
+		switch(connect - tokens){
+			case 1: return 100;
+			case 2: return 10;
+			case 3: return 1;
+			default: return 0;
+		}
+	}
+
 	/**
 	* Finds all of the possible actions the player can take.
 	* @param rack the current rack
 	* @return array containing the column numbers for all possible actions
 	*/
-	private int[] actions(byte[][] rack){
+	int[] actions(byte[][] rack){
 		//get rack dimensions
 		int height = rack.length;
 		int width = rack[0].length;
@@ -464,7 +622,7 @@ public class ComputerConnectFourPlayer implements ConnectFourPlayer {
 	* @param thisSide the side taking the action
 	* @return a rack with the input action taken
 	*/
-	private byte[][] result(byte[][] rack, int action, int thisSide){
+	byte[][] result(byte[][] rack, int action, int thisSide){
 		int height = rack.length;
 		int width = rack[0].length;
 
@@ -0,0 +1,95 @@
+package players;
+
+import java.util.Arrays;
+
+/**
+ * The weights of the window heuristic: what a window of four cells is worth
+ * when it holds one, two or three stones of one side and none of the other,
+ * and a bonus for threats on a row of the right parity.
+ *
+ * A threat is the empty cell of a window holding three stones of one side.
+ * With the board filled bottom-up, the first player tends to get the cells
+ * of odd rows (counting the bottom row as 1) and the second player those of
+ * even rows, so a threat on a row of its own parity is the kind that wins
+ * games late. Such a threat earns the parity bonus on top of the window's
+ * weight.
+ *
+ * The defaults are the 1/10/100 of ComputerConnectFourPlayer.evaluate()
+ * with no parity bonus. Weights are immutable.
+ */
+public final class EvaluationWeights {
+	/** The 1/10/100 weights of the original heuristic. */
+	public static final EvaluationWeights DEFAULT = new EvaluationWeights(new int[] {1, 10, 100}, new int[] {1, 10, 100}, 0);
+
+	private final int[] own;      // value of a window holding 0-3 computer stones only
+	private final int[] opponent; // value subtracted for a window holding 0-3 opponent stones only
+	private final int parityThreat;
+
+	/**
+	 * Constructs a weight vector.
+	 * @param own the worth of a window holding 1, 2 or 3 computer stones only
+	 * @param opponent the cost of a window holding 1, 2 or 3 opponent stones only
+	 * @param parityThreat the extra worth of a threat on a row of its side's parity
+	 */
+	public EvaluationWeights(int[] own, int[] opponent, int parityThreat) {
+		if (own.length != 3 || opponent.length != 3) throw new IllegalArgumentException("Need a weight for 1, 2 and 3 stones");
+		this.own = new int[] {0, own[0], own[1], own[2]};
+		this.opponent = new int[] {0, opponent[0], opponent[1], opponent[2]};
+		this.parityThreat = parityThreat;
+	}
+
+	/**
+	 * Reads weights written as comma-separated numbers: the worth of 1, 2 and
+	 * 3 stones for both sides, e.g. "1,10,100"; then optionally the opponent's
+	 * three weights if they differ; then optionally the parity bonus. So 3, 4,
+	 * 6 or 7 numbers in all.
+	 * @param spec the weights
+	 * @return the weight vector
+	 * @throws IllegalArgumentException if the weights can't be read
+	 */
+	public static EvaluationWeights parse(String spec) {
+		String[] parts = spec.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) values[i] = Integer.parseInt(parts[i].trim());
+
+		int[] own = Arrays.copyOfRange(values, 0, Math.min(3, values.length));
+		switch (values.length) {
+			case 3: return new EvaluationWeights(own, own, 0);
+			case 4: return new EvaluationWeights(own, own, values[3]);
+			case 6: return new EvaluationWeights(own, Arrays.copyOfRange(values, 3, 6), 0);
+			case 7: return new EvaluationWeights(own, Arrays.copyOfRange(values, 3, 6), values[6]);
+			default: throw new IllegalArgumentException("Expected 3, 4, 6 or 7 weights: " +spec);
+		}
+	}
+
+	/**
+	 * Returns the worth of a window holding only computer stones.
+	 * @param stones the number of stones, 0 to 3
+	 * @return the weight
+	 */
+	public int own(int stones) {
+		return own[stones];
+	}
+
+	/**
+	 * Returns the cost of a window holding only opponent stones.
+	 * @param stones the number of stones, 0 to 3
+	 * @return the weight, as a positive number
+	 */
+	public int opponent(int stones) {
+		return opponent[stones];
+	}
+
+	/**
+	 * Returns the extra worth of a threat on a row of its side's parity.
+	 * @return the bonus
+	 */
+	public int parityThreat() {
+		return parityThreat;
+	}
+
+	@Override
+	public String toString() {
+		return own[1]+ "," +own[2]+ "," +own[3]+ "," +opponent[1]+ "," +opponent[2]+ "," +opponent[3]+ "," +parityThreat;
+	}
+}
@@ -0,0 +1,55 @@
+package players;
+
+/**
+ * A heuristic the search scores positions with. It is kept up to date move
+ * by move: the search resets it at the root, then adds and removes stones as
+ * it plays and takes back moves, and asks for the value at every node.
+ *
+ * Cells are given as bit indexes in {@link Position}'s layout, and values
+ * are from the computer's side, which is to move at the root. An evaluator
+ * must return Integer.MAX_VALUE exactly when the computer has a winning line
+ * and Integer.MIN_VALUE exactly when the opponent has, as the search relies
+ * on those to end the game; all other values must lie strictly between.
+ */
+public interface Evaluator {
+	/**
+	 * Sets up the evaluator for a root position.
+	 * @param ai the computer's stones
+	 * @param opp the opponent's stones
+	 */
+	void reset(long ai, long opp);
+
+	/**
+	 * Adds a stone.
+	 * @param cell the cell's bit index
+	 * @param ai true for a computer stone, false for an opponent stone
+	 */
+	void add(int cell, boolean ai);
+
+	/**
+	 * Removes a stone added by {@link #add}.
+	 * @param cell the cell's bit index
+	 * @param ai true for a computer stone, false for an opponent stone
+	 */
+	void remove(int cell, boolean ai);
+
+	/**
+	 * Returns the heuristic value of the current stones.
+	 * @return the value for the computer
+	 */
+	int evaluate();
+
+	/**
+	 * Makes evaluators. Each searching thread gets its own evaluator.
+	 */
+	interface Factory {
+		/**
+		 * Makes an evaluator for an empty board.
+		 * @param width the number of columns
+		 * @param height the number of rows
+		 * @param connect the length of a winning line
+		 * @return the new evaluator
+		 */
+		Evaluator create(int width, int height, int connect);
+	}
+}
@@ -40,12 +40,12 @@ public class HumanConnectFourPlayer implements ConnectFourPlayer {
 			else game.hoverToken(-1, side);
 		}
 
-		// loop around forever, until the player does something
+		// loop around forever, until the player does something; the wait uses no CPU until the mouse moves
 		while (true) {			
 			mouseHandler.waitForMouse();
 
-			// check to make sure the user didn't close the window
-			if (mouseHandler.isShutDown()) return -1;
+			// check to make sure the user didn't close the window (or the game wasn't stopped)
+			if (mouseHandler.isShutDown() || Thread.currentThread().isInterrupted()) return -1;
 
 			// if there was a click, grab it as the chosen play
 			if (mouseHandler.isClick()) {
@@ -62,6 +62,7 @@ public class HumanConnectFourPlayer implements ConnectFourPlayer {
 
 			// otherwise, just check the position, to update the hover
 			else {
+				mouseHandler.clearMovement(); // before reading it, so that a later move wakes us up again
 				x = mouseHandler.getPositionX();
 
 				if (x == -1) game.hoverToken(-1, side);
@@ -0,0 +1,178 @@
+package players;
+
+import java.util.ArrayList;
+
+/**
+ * The table-driven {@link Evaluator}: the window heuristic of
+ * ComputerConnectFourPlayer.evaluate(), with its weights taken from an
+ * {@link EvaluationWeights} and kept up to date as stones are added and
+ * removed instead of rescanning the board.
+ *
+ * Every window of cells in a row as long as a winning line (69 windows of
+ * four on the standard board) is listed once, up front, along with the
+ * windows through each cell. For every
+ * window it keeps the number of stones of each side and which of its cells
+ * are filled. Adding or removing a stone only touches the windows through
+ * that cell (at most 13 on the standard board), adjusting the running score
+ * by the change in those windows' values.
+ *
+ * Threat parity is judged by who moved first: the side to move at the root
+ * moved first if both sides have as many stones.
+ *
+ * The weights are for windows one, two and three stones short of a line, so
+ * for lines of five a window of four stones gets the weight of three in a
+ * window of four, and a window of one stone gets nothing.
+ */
+final class IncrementalEvaluator implements Evaluator {
+	private final EvaluationWeights weights;
+	private final int connect;
+	private final int[] ownValues, oppValues; // the value of a window by its stone count, for one side only
+	private final int[][] cellWindows; // the windows through each cell, by bit index: window*32 + its slot for the cell
+	private final int[] evenRowSlots;  // per window, the slots on rows 0, 2, 4, ... (odd rows counting from 1)
+	private final int[] aiCount, oppCount;
+	private final int[] filled;        // per window, its filled slots
+	private boolean aiFirst;           // true if the computer moved first, so odd rows (counting from 1) favor it
+	private int score;
+	private int aiFours, oppFours;     // windows filled by one side: winning lines
+
+	/**
+	 * Constructs an evaluator for an empty board with the default weights,
+	 * where four in a row wins.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 */
+	IncrementalEvaluator(int width, int height) {
+		this(width, height, Position.CONNECT, EvaluationWeights.DEFAULT);
+	}
+
+	/**
+	 * Constructs an evaluator for an empty board.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @param connect the length of a winning line (up to 31)
+	 * @param weights the weights to score windows with
+	 */
+	IncrementalEvaluator(int width, int height, int connect, EvaluationWeights weights) {
+		if (connect < 2 || connect > 31) throw new IllegalArgumentException("Can't evaluate lines of " +connect);
+		this.weights = weights;
+		this.connect = connect;
+		ownValues = new int[connect];
+		oppValues = new int[connect];
+		for (int k = 1; k < connect; k++) {
+			int shortBy = connect - k;
+			ownValues[k] = (shortBy <= 3) ? weights.own(4 - shortBy) : 0;
+			oppValues[k] = (shortBy <= 3) ? weights.opponent(4 - shortBy) : 0;
+		}
+		int stride = height+1;
+		ArrayList<ArrayList<Integer>> lists = new ArrayList<ArrayList<Integer>>();
+		for (int i = 0; i < width*stride; i++) lists.add(new ArrayList<Integer>());
+		ArrayList<Integer> evenRows = new ArrayList<Integer>();
+
+		// every line of connect cells: {column step, row step}
+		int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+		int windows = 0;
+		for (int[] d : directions) {
+			for (int c = 0; c < width; c++) {
+				for (int r = 0; r < height; r++) {
+					int lastC = c + (connect-1)*d[0], lastR = r + (connect-1)*d[1];
+					if (lastC >= width || lastR < 0 || lastR >= height) continue;
+					int slots = 0;
+					for (int i = 0; i < connect; i++) {
+						int row = r + i*d[1];
+						lists.get((c + i*d[0])*stride + row).add(windows*32 + i);
+						if (row % 2 == 0) slots |= 1 << i;
+					}
+					evenRows.add(slots);
+					windows++;
+				}
+			}
+		}
+
+		cellWindows = new int[lists.size()][];
+		for (int i = 0; i < cellWindows.length; i++) {
+			ArrayList<Integer> list = lists.get(i);
+			cellWindows[i] = new int[list.size()];
+			for (int j = 0; j < list.size(); j++) cellWindows[i][j] = list.get(j);
+		}
+		evenRowSlots = new int[windows];
+		for (int w = 0; w < windows; w++) evenRowSlots[w] = evenRows.get(w);
+		aiCount = new int[windows];
+		oppCount = new int[windows];
+		filled = new int[windows];
+	}
+
+	@Override
+	public void reset(long ai, long opp) {
+		for (int w = 0; w < aiCount.length; w++) aiCount[w] = oppCount[w] = filled[w] = 0;
+		score = aiFours = oppFours = 0;
+		aiFirst = Long.bitCount(ai) == Long.bitCount(opp);
+		for (long bits = ai; bits != 0; bits &= bits-1) add(Long.numberOfTrailingZeros(bits), true);
+		for (long bits = opp; bits != 0; bits &= bits-1) add(Long.numberOfTrailingZeros(bits), false);
+	}
+
+	@Override
+	public void add(int cell, boolean ai) {
+		for (int ws : cellWindows[cell]) {
+			int w = ws >>> 5;
+			int a = aiCount[w], o = oppCount[w];
+			score -= value(w, a, o);
+			if (ai) {
+				aiCount[w] = ++a;
+				if (a == connect) aiFours++;
+			}
+			else {
+				oppCount[w] = ++o;
+				if (o == connect) oppFours++;
+			}
+			filled[w] |= 1 << (ws & 31);
+			score += value(w, a, o);
+		}
+	}
+
+	@Override
+	public void remove(int cell, boolean ai) {
+		for (int ws : cellWindows[cell]) {
+			int w = ws >>> 5;
+			int a = aiCount[w], o = oppCount[w];
+			score -= value(w, a, o);
+			if (ai) {
+				if (a == connect) aiFours--;
+				aiCount[w] = --a;
+			}
+			else {
+				if (o == connect) oppFours--;
+				oppCount[w] = --o;
+			}
+			filled[w] &= ~(1 << (ws & 31));
+			score += value(w, a, o);
+		}
+	}
+
+	/**
+	 * Returns the heuristic value of the current stones, from the computer's
+	 * side: Integer.MAX_VALUE if the computer has a winning line,
+	 * Integer.MIN_VALUE if the opponent has, and otherwise the sum of every
+	 * window's value.
+	 * @return the heuristic value
+	 */
+	@Override
+	public int evaluate() {
+		if (aiFours > 0) return Integer.MAX_VALUE;
+		if (oppFours > 0) return Integer.MIN_VALUE;
+		return score;
+	}
+
+	// the value of one window, given each side's stones in it and its filled slots (full lines are counted separately)
+	private int value(int w, int a, int o) {
+		if (a == connect || o == connect) return 0;
+		if (o == 0) return ownValues[a] + ((a == connect-1 && onOwnParity(w, aiFirst)) ? weights.parityThreat() : 0);
+		if (a == 0) return -oppValues[o] - ((o == connect-1 && onOwnParity(w, !aiFirst)) ? weights.parityThreat() : 0);
+		return 0;
+	}
+
+	// true if a window's one empty cell is on a row of the given side's parity
+	private boolean onOwnParity(int w, boolean first) {
+		boolean oddRow = (~filled[w] & evenRowSlots[w]) != 0; // row 0, 2, 4, ... is odd counting from 1
+		return oddRow == first;
+	}
+}
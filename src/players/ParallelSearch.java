@@ -0,0 +1,132 @@
+package players;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A pool of search engines, each on its own thread, that search root moves
+ * at the same time for a {@link SearchEngine}. This is the "young brothers
+ * wait" scheme applied at the root: the first move is searched alone to get
+ * a bound, and only then are its brothers searched in parallel. The engines
+ * share the main engine's transposition table, which is safe to use without
+ * locks, so work done by one thread saves work on the others.
+ */
+final class ParallelSearch {
+	private final ExecutorService pool;
+	private final SearchEngine[] engines;
+	private final BlockingQueue<SearchEngine> idle; // engines not searching right now
+
+	/**
+	 * Constructs a pool of engines.
+	 * @param threads the number of threads (and engines)
+	 * @param maxDepth the depth cutoff of the main engine
+	 * @param mode the mode of the main engine
+	 */
+	ParallelSearch(int threads, int maxDepth, SearchMode mode) {
+		pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "connect-four-search");
+			thread.setDaemon(true); // don't keep the program alive after the game
+			return thread;
+		});
+		engines = new SearchEngine[threads];
+		idle = new ArrayBlockingQueue<SearchEngine>(threads);
+		for (int i = 0; i < threads; i++) {
+			engines[i] = new SearchEngine(maxDepth, mode);
+			idle.add(engines[i]);
+		}
+	}
+
+	/**
+	 * Gives every engine an evaluator factory.
+	 * @param factory the factory to make the engines' evaluators with
+	 */
+	void setEvaluatorFactory(Evaluator.Factory factory) {
+		for (SearchEngine engine : engines) engine.setEvaluatorFactory(factory);
+	}
+
+	/**
+	 * Makes every engine forget the move ordering of earlier searches.
+	 */
+	void resetMoveOrdering() {
+		for (SearchEngine engine : engines) engine.resetMoveOrdering();
+	}
+
+	/**
+	 * Gives every engine the position about to be searched.
+	 * @param root the root position
+	 * @param table the transposition table to share
+	 * @param tablebase the endgame tablebase to share, or null
+	 */
+	void setRoot(Position root, TranspositionTable table, PositionDatabase tablebase) {
+		for (SearchEngine engine : engines) engine.setRoot(root, table, tablebase);
+	}
+
+	/**
+	 * Searches root moves 2 and up in parallel, with the same window.
+	 * @param moves the number of moves followed by the moves, as ordered by the main engine
+	 * @param alpha the lower bound of the search window
+	 * @param depthLimit the number of plies to search
+	 * @param deadline the System.nanoTime() at which to give up
+	 * @return the value of each move, at the same index as in <code>moves</code>,
+	 * or null if the deadline passed before all were finished
+	 */
+	long[] searchRootMoves(int[] moves, long alpha, int depthLimit, long deadline) {
+		ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>();
+		for (int i = 2; i <= moves[0]; i++) {
+			int column = moves[i];
+			futures.add(pool.submit(() -> {
+				SearchEngine engine = idle.take();
+				try {
+					return engine.searchRootMove(column, alpha, depthLimit, deadline);
+				}
+				finally {
+					idle.add(engine);
+				}
+			}));
+		}
+
+		long[] values = new long[moves.length];
+		boolean finished = true;
+		for (int i = 2; i <= moves[0]; i++) {
+			Long value = waitFor(futures.get(i-2));
+			if (value == null) finished = false;
+			else values[i] = value;
+		}
+		return finished ? values : null;
+	}
+
+	/**
+	 * Adds the engines' search statistics since the last call to the main
+	 * engine's, and resets them.
+	 * @param main the engine the root is being searched by
+	 */
+	void addStatisticsTo(SearchEngine main) {
+		for (SearchEngine engine : engines) main.takeStatistics(engine);
+	}
+
+	/**
+	 * Stops the threads. The pool can't be used afterwards.
+	 */
+	void shutdown() {
+		pool.shutdownNow();
+	}
+
+	// waits for one root move's result; null if it timed out or the wait was interrupted
+	private static Long waitFor(Future<Long> future) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Parallel search failed", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package players;
+
+/**
+ * Counts the positions reachable from a position in a given number of plies,
+ * the way chess programs check their move generators ("perft"). A game that
+ * has been won is not continued. From the empty board the counts are 7^n up
+ * to depth 6 (7, 49, ..., 117649). At depth 7 no game can have been won yet,
+ * as the first line takes the first player's fourth stone at ply 7; the count
+ * is 823536, seven short of 7^7, because a column holds only six stones, so
+ * playing all seven moves in one column is illegal. Won games are cut off
+ * from depth 8 on (5673234).
+ *
+ * Usage: java players.Perft [depth] [moves]
+ */
+public final class Perft {
+	private Perft() {
+	}
+
+	/**
+	 * Counts the positions exactly <code>depth</code> plies below a position.
+	 * @param position the position to count from (left unchanged)
+	 * @param depth the number of plies
+	 * @return the number of leaf positions
+	 */
+	public static long perft(Position position, int depth) {
+		if (depth == 0) return 1;
+		long count = 0;
+		for (int column = 0; column < position.getWidth(); column++) {
+			if (!position.canPlay(column)) continue;
+			if (depth == 1) {
+				count++; // every legal move is a leaf, so don't bother playing it
+			}
+			else if (!position.isWinningMove(column)) {
+				position.play(column);
+				count += perft(position, depth-1);
+				position.undo(column);
+			}
+		}
+		return count;
+	}
+
+	public static void main(String[] args) {
+		int depth = (args.length >= 1) ? Integer.parseInt(args[0]) : 9;
+		Position position = Position.fromMoves((args.length >= 2) ? args[1] : "");
+
+		for (int d = 1; d <= depth; d++) {
+			long start = System.nanoTime();
+			long count = perft(position, d);
+			long time = System.nanoTime() - start;
+			System.out.printf("perft(%d) = %,d  %.1f ms  %,.0f nodes/s%n", d, count, time/1e6, count*1e9/Math.max(1, time));
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package players;
+
+/**
+ * Searches on the opponent's time. After the computer moves, a background
+ * thread searches the positions each reply would leave, as the computer's
+ * next search will, most likely replies first. Its engine shares the
+ * player's transposition table, so when the real reply comes, the searches
+ * it finished leave the results of the matching subtree in the table, and
+ * the real search finds them there.
+ *
+ * When the reply comes, the search of any other reply is cancelled. A search
+ * of the reply that was played is left to finish, even one that was only
+ * about to start, since it is the one the computer needs.
+ *
+ * The searches of one pondering session count as a single search for the
+ * table's aging, so that pondering doesn't age the table several times per
+ * move.
+ */
+final class Ponderer {
+	private static final long NONE = 0L; // never a position key, which always has a marker bit set
+
+	private final SearchEngine engine;
+	private Thread thread;             // the pondering thread, or null if not pondering
+	private volatile long target;      // the key of the position the reply left, once it comes
+	private volatile long searching;   // the key of the position being searched, or NONE
+
+	/**
+	 * Constructs a ponderer.
+	 * @param engine the engine to search with, sharing the player's table
+	 */
+	Ponderer(SearchEngine engine) {
+		this.engine = engine;
+		engine.setAgesTable(false); // start() ages it once per session
+	}
+
+	/**
+	 * Starts searching the replies to a move, if the game goes on after it.
+	 * @param root the position the computer just searched
+	 * @param column the column it chose
+	 */
+	void start(Position root, int column) {
+		cancel();
+		if (column < 0 || !root.canPlay(column) || root.isWinningMove(column)) return;
+		Position afterMove = new Position(root);
+		afterMove.play(column);
+		if (afterMove.isFull()) return;
+
+		target = NONE;
+		searching = NONE;
+		engine.setCancelled(false);
+		engine.ageTable();
+		thread = new Thread(() -> ponder(afterMove), "connect-four-ponder");
+		thread.setDaemon(true); // don't keep the program alive after the game
+		thread.start();
+	}
+
+	/**
+	 * Stops pondering because the reply has come, keeping the search of the
+	 * position it left if that one is under way.
+	 * @param root the position to search now, with the computer to move
+	 */
+	void stop(Position root) {
+		if (thread == null) return;
+		long key = root.key();
+		synchronized (this) {
+			target = key;
+			if (searching != key) engine.setCancelled(true);
+		}
+		join();
+	}
+
+	/**
+	 * Stops pondering, throwing away any search under way.
+	 */
+	void cancel() {
+		if (thread == null) return;
+		engine.setCancelled(true);
+		join();
+	}
+
+	// searches the replies one by one, until they are done or the real one comes
+	private void ponder(Position afterMove) {
+		long tried = 0L;
+		for (int pass = 0; pass < 2; pass++) {
+			// the replies that don't lose at once first, then any others
+			long replies = (pass == 0) ? afterMove.nonLosingMoves() : afterMove.playableMask() & ~tried;
+			for (int i = 0; i < afterMove.getWidth(); i++) {
+				int c = afterMove.getWidth()/2 + (1 - 2*(i%2))*(i+1)/2; // center first
+				if ((replies & afterMove.columnMask(c)) == 0 || afterMove.isWinningMove(c)) continue;
+				tried |= afterMove.columnMask(c);
+
+				Position root = new Position(afterMove);
+				root.play(c);
+				long key = root.key();
+				synchronized (this) { // against stop(), so that it either sees this search or is seen by it
+					long wanted = target;
+					if (wanted != NONE && wanted != key) return; // the real reply came while this one was being set up
+					if (wanted == key) engine.setCancelled(false); // it came first: stop() cancelled the last search, not this one
+					searching = key;
+				}
+				engine.bestMove(root);
+				searching = NONE;
+				if (target != NONE) return;
+			}
+		}
+	}
+
+	// waits for the pondering thread to stop; if interrupted, cancels its search and still waits, so that it never
+	// shares the engine with the next one
+	private void join() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				thread.join();
+				break;
+			}
+			catch (InterruptedException e) {
+				engine.setCancelled(true);
+				interrupted = true;
+			}
+		}
+		thread = null;
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+}
@@ -0,0 +1,578 @@
+package players;
+
+/**
+ * A Connect Four position stored as two bitboards, for use inside the search.
+ * Unlike the <code>byte[][]</code> rack, a move can be played and taken back
+ * in place, so the search never has to copy the board.
+ *
+ * The board is stored column by column. Each column uses height+1 bits: one
+ * per cell, counted from the bottom, plus a spare bit on top so that shifting
+ * a line of stones can never spill into the next column. Bit 0 is the bottom
+ * cell of column 0.
+ *
+ * <code>current</code> holds the stones of the side to move and
+ * <code>mask</code> holds every stone on the board, so the opponent's stones
+ * are <code>current ^ mask</code>.
+ *
+ * A game may be won with a line of any length, not only four; lines of four
+ * take the shorter, unrolled paths. The board must fit in one long, which
+ * {@link #fits} tells.
+ */
+public final class Position {
+	public static final int WIDTH = 7, HEIGHT = 6, CONNECT = 4;
+
+	private final int width, height, stride, connect;
+	private final long bottomMask, boardMask;
+	private final int[] heights; // number of stones in each column
+	private long current;        // stones of the side to move
+	private long mask;           // all stones
+	private int moves;           // number of stones played
+
+	/**
+	 * Constructs an empty position on the standard 7x6 board.
+	 */
+	public Position() {
+		this(WIDTH, HEIGHT);
+	}
+
+	/**
+	 * Constructs an empty position where four in a row wins.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 */
+	public Position(int width, int height) {
+		this(width, height, CONNECT);
+	}
+
+	/**
+	 * Constructs an empty position.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @param connect the length of a winning line
+	 */
+	public Position(int width, int height, int connect) {
+		if (width < 1 || height < 1 || !fits(width, height)) {
+			throw new IllegalArgumentException("A " +width+ "x" +height+ " board does not fit in a 64-bit bitboard");
+		}
+		if (connect < 2 || connect > Math.max(width, height)) {
+			throw new IllegalArgumentException("Can't connect " +connect+ " on a " +width+ "x" +height+ " board");
+		}
+		this.width = width;
+		this.height = height;
+		this.connect = connect;
+		stride = height+1;
+		heights = new int[width];
+
+		long bottom = 0L, board = 0L;
+		for (int c = 0; c < width; c++) {
+			bottom |= 1L << (c*stride);
+			board |= columnMask(c);
+		}
+		bottomMask = bottom;
+		boardMask = board;
+	}
+
+	/**
+	 * Constructs a copy of another position.
+	 * @param other the position to copy
+	 */
+	public Position(Position other) {
+		width = other.width;
+		height = other.height;
+		connect = other.connect;
+		stride = other.stride;
+		bottomMask = other.bottomMask;
+		boardMask = other.boardMask;
+		heights = other.heights.clone();
+		current = other.current;
+		mask = other.mask;
+		moves = other.moves;
+	}
+
+	/**
+	 * Returns true if a board fits in a bitboard, so that a Position can be
+	 * made for it.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @return true if it fits
+	 */
+	public static boolean fits(int width, int height) {
+		return width*(height+1) <= 64;
+	}
+
+	/**
+	 * Converts a rack, as passed to {@link ConnectFourPlayer#getNextPlay}, into
+	 * a position where four in a row wins.
+	 * @param rack the rack. Row 0 is the top row, 0 is an empty space, and the
+	 * two colors are -1 and 1.
+	 * @param sideToMove -1 or 1, the side whose turn it is
+	 * @return the equivalent position
+	 */
+	public static Position fromRack(byte[][] rack, int sideToMove) {
+		return fromRack(rack, sideToMove, CONNECT);
+	}
+
+	/**
+	 * Converts a rack into a position.
+	 * @param rack the rack, as for {@link #fromRack(byte[][], int)}
+	 * @param sideToMove -1 or 1, the side whose turn it is
+	 * @param connect the length of a winning line
+	 * @return the equivalent position
+	 */
+	public static Position fromRack(byte[][] rack, int sideToMove, int connect) {
+		int height = rack.length;
+		int width = rack[0].length;
+		Position position = new Position(width, height, connect);
+
+		for (int c = 0; c < width; c++) {
+			for (int r = height-1; r >= 0; r--) {
+				byte cell = rack[r][c];
+				if (cell == 0) break; // nothing can rest above an empty space
+
+				long bit = position.cellBit(c, position.heights[c]);
+				if (cell == sideToMove) position.current |= bit;
+				position.mask |= bit;
+				position.heights[c]++;
+				position.moves++;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Builds a position on the standard board from a sequence of played
+	 * columns, numbered from 1, e.g. "4453".
+	 * @param moves the columns played, in order
+	 * @return the resulting position
+	 */
+	public static Position fromMoves(String moves) {
+		return PositionCodec.decodeMoves(moves, new Position());
+	}
+
+	/**
+	 * Converts this position back into a rack.
+	 * @param sideToMove the color (-1 or 1) to give the stones of the side to move
+	 * @return a new rack, with row 0 at the top
+	 */
+	public byte[][] toRack(int sideToMove) {
+		byte[][] rack = new byte[height][width];
+		for (int c = 0; c < width; c++) {
+			for (int h = 0; h < heights[c]; h++) {
+				long bit = cellBit(c, h);
+				rack[height-1-h][c] = (byte)(((current & bit) != 0) ? sideToMove : -sideToMove);
+			}
+		}
+		return rack;
+	}
+
+	/**
+	 * Empties the board, so that the position can be reused.
+	 */
+	public void clear() {
+		set(0L, 0L);
+	}
+
+	// replaces the stones, given as for getCurrent() and getMask(); every column of the mask must be filled from the bottom
+	void set(long current, long mask) {
+		this.current = current;
+		this.mask = mask;
+		for (int c = 0; c < width; c++) heights[c] = Long.bitCount(mask & columnMask(c));
+		moves = Long.bitCount(mask);
+	}
+
+	/**
+	 * Returns true if a stone can still be dropped into a column.
+	 * @param column the column
+	 * @return true if the column is not full
+	 */
+	public boolean canPlay(int column) {
+		return heights[column] < height;
+	}
+
+	/**
+	 * Drops a stone for the side to move, then passes the turn.
+	 * The column must be playable.
+	 * @param column the column to play
+	 */
+	public void play(int column) {
+		long bit = cellBit(column, heights[column]++);
+		current ^= mask;
+		mask |= bit;
+		moves++;
+	}
+
+	/**
+	 * Takes back the last stone dropped into a column, giving the turn back
+	 * to the side that played it.
+	 * @param column the column the last move was played in
+	 */
+	public void undo(int column) {
+		long bit = cellBit(column, --heights[column]);
+		mask ^= bit;
+		current ^= mask;
+		moves--;
+	}
+
+	/**
+	 * Returns true if the side to move would complete a line by playing a column.
+	 * The column must be playable.
+	 * @param column the column to test
+	 * @return true if it is a winning move
+	 */
+	public boolean isWinningMove(int column) {
+		return hasLine(current | cellBit(column, heights[column]));
+	}
+
+	/**
+	 * Returns true if the side that just moved has a winning line.
+	 * @return true if the last move won the game
+	 */
+	public boolean lastMoverWon() {
+		return hasLine(current ^ mask);
+	}
+
+	/**
+	 * Returns true if a set of stones contains a winning line. For four in a
+	 * row this takes one shift-and-AND per direction.
+	 * @param stones the stones of one side
+	 * @return true if there is a winning line
+	 */
+	public boolean hasLine(long stones) {
+		if (connect != 4) {
+			return hasLine(stones, stride) || hasLine(stones, stride-1) || hasLine(stones, stride+1) || hasLine(stones, 1);
+		}
+
+		// horizontal
+		long m = stones & (stones >>> stride);
+		if ((m & (m >>> (2*stride))) != 0) return true;
+
+		// descending (going right, the row drops by one)
+		m = stones & (stones >>> (stride-1));
+		if ((m & (m >>> (2*(stride-1)))) != 0) return true;
+
+		// ascending
+		m = stones & (stones >>> (stride+1));
+		if ((m & (m >>> (2*(stride+1)))) != 0) return true;
+
+		// vertical
+		m = stones & (stones >>> 1);
+		return (m & (m >>> 2)) != 0;
+	}
+
+	// true if the stones hold a line in one direction, given as the bit distance between neighbors in it
+	private boolean hasLine(long stones, int shift) {
+		long m = stones; // the cells that start a run of length stones
+		int length = 1;
+		while (2*length <= connect) {
+			m &= shiftRight(m, length*shift);
+			length *= 2;
+		}
+		if (length < connect) m &= shiftRight(m, (connect-length)*shift); // the two runs overlap
+		return m != 0;
+	}
+
+	/**
+	 * Returns the empty cells where a set of stones would complete a winning
+	 * line, whether or not they can be played yet.
+	 * @param stones the stones of one side
+	 * @return the winning cells
+	 */
+	public long winningSquares(long stones) {
+		if (connect != 4) {
+			long r = winningSquares(stones, 1) | winningSquares(stones, stride-1)
+					| winningSquares(stones, stride) | winningSquares(stones, stride+1);
+			return r & (boardMask ^ mask);
+		}
+
+		// vertical: only the cell above three stones
+		long r = (stones << 1) & (stones << 2) & (stones << 3);
+
+		// the other directions: the gap may be at either end or in the middle
+		for (int shift = stride-1; shift <= stride+1; shift++) {
+			long p = (stones << shift) & (stones << (2*shift));
+			r |= p & (stones << (3*shift));
+			r |= p & (stones >>> shift);
+			p = (stones >>> shift) & (stones >>> (2*shift));
+			r |= p & (stones << shift);
+			r |= p & (stones >>> (3*shift));
+		}
+		return r & (boardMask ^ mask);
+	}
+
+	// the cells that would complete a line in one direction, trying the gap at each place in the line
+	private long winningSquares(long stones, int shift) {
+		long r = 0;
+		for (int gap = 0; gap < connect; gap++) {
+			long p = -1L;
+			for (int i = 0; i < connect; i++) {
+				int offset = (i - gap)*shift; // from the gap to the i-th cell of the line
+				if (offset > 0) p &= shiftRight(stones, offset);
+				else if (offset < 0) p &= shiftLeft(stones, -offset);
+			}
+			r |= p;
+		}
+		return r;
+	}
+
+	// shifts that give 0 rather than wrapping when the distance is 64 or more
+	private static long shiftRight(long bits, int distance) {
+		return (distance < 64) ? bits >>> distance : 0;
+	}
+
+	private static long shiftLeft(long bits, int distance) {
+		return (distance < 64) ? bits << distance : 0;
+	}
+
+	/**
+	 * Returns the cells a stone can be dropped into right now, one per column
+	 * that isn't full.
+	 * @return the playable cells
+	 */
+	public long playableMask() {
+		return (mask + bottomMask) & boardMask;
+	}
+
+	/**
+	 * Returns the cells where the side to move would win right away.
+	 * @return the winning moves, one cell per column at most
+	 */
+	public long winningMoves() {
+		return winningSquares(current) & playableMask();
+	}
+
+	/**
+	 * Returns the empty cells where the side that just moved would complete a
+	 * four in a row, whether or not they can be played yet.
+	 * @return the opponent's threats
+	 */
+	public long opponentThreats() {
+		return winningSquares(current ^ mask);
+	}
+
+	/**
+	 * Returns true if the side to move has a winning move.
+	 * @return true if the side to move can win right away
+	 */
+	public boolean canWinNext() {
+		return winningMoves() != 0;
+	}
+
+	/**
+	 * Returns the playable cells that don't let the opponent win on the next
+	 * move, assuming the side to move can't win right away. If the opponent
+	 * threatens to win, only the blocking move is returned; if it threatens
+	 * twice, nothing is.
+	 * @return the cells that don't lose at once
+	 */
+	public long nonLosingMoves() {
+		long possible = playableMask();
+		long opponentWins = opponentThreats();
+		long forced = possible & opponentWins;
+		if (forced != 0) {
+			if ((forced & (forced-1)) != 0) return 0; // two threats can't both be blocked
+			possible = forced;
+		}
+		return possible & ~(opponentWins >>> 1); // never play right under an opponent's winning cell
+	}
+
+	/**
+	 * Returns a key that identifies this position: the stones of the side to
+	 * move plus one marker bit above the top stone of every column. Two
+	 * positions get the same key only if they are equal.
+	 * @return the key
+	 */
+	public long key() {
+		return current | (mask + bottomMask);
+	}
+
+	/**
+	 * Returns the key of this position's left-right mirror image.
+	 * @return the mirrored key
+	 */
+	public long mirrorKey() {
+		return mirror(key());
+	}
+
+	/**
+	 * Returns a key shared by this position and its mirror image: the smaller
+	 * of the two keys. Caches keyed by it store a position and its mirror
+	 * image once. A move stored with it must be mirrored, with
+	 * {@link #mirrorColumn}, whenever {@link #isMirrored} is true.
+	 * @return the canonical key
+	 */
+	public long canonicalKey() {
+		return Math.min(key(), mirrorKey());
+	}
+
+	/**
+	 * Returns true if the canonical key is the mirror image's key, so that
+	 * moves are stored for the mirror image.
+	 * @return true if the position is the mirror of its canonical form
+	 */
+	public boolean isMirrored() {
+		return mirrorKey() < key();
+	}
+
+	/**
+	 * Returns true if the position is its own mirror image, so that each
+	 * move and its mirrored move lead to the same position, mirrored.
+	 * @return true if the position is left-right symmetric
+	 */
+	public boolean isSymmetric() {
+		return mirrorKey() == key();
+	}
+
+	/**
+	 * Returns the column a column becomes in the mirror image.
+	 * @param column the column
+	 * @return the mirrored column
+	 */
+	public int mirrorColumn(int column) {
+		return width-1 - column;
+	}
+
+	/**
+	 * Flips a bitboard left to right.
+	 * @param bits a bitboard in this position's layout
+	 * @return the mirrored bitboard
+	 */
+	public long mirror(long bits) {
+		long columnBits = (1L << stride) - 1;
+		long mirrored = 0;
+		for (int c = 0; c < width; c++) {
+			mirrored |= ((bits >>> (c*stride)) & columnBits) << ((width-1 - c)*stride);
+		}
+		return mirrored;
+	}
+
+	/**
+	 * Returns true if every space is filled.
+	 * @return true if the board is full
+	 */
+	public boolean isFull() {
+		return moves == width*height;
+	}
+
+	/**
+	 * Returns the bit for a cell.
+	 * @param column the column
+	 * @param row the row, counting up from 0 at the bottom
+	 * @return the bit
+	 */
+	public long cellBit(int column, int row) {
+		return 1L << (column*stride + row);
+	}
+
+	/**
+	 * Returns the bits of every cell in a column.
+	 * @param column the column
+	 * @return the bits of the column, not including the spare bit
+	 */
+	public long columnMask(int column) {
+		return ((1L << height) - 1) << (column*stride);
+	}
+
+	/**
+	 * Returns the stones of the side to move.
+	 * @return the bitboard of the side to move
+	 */
+	public long getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Returns the stones of the side that just moved.
+	 * @return the bitboard of the opponent
+	 */
+	public long getOpponent() {
+		return current ^ mask;
+	}
+
+	/**
+	 * Returns every stone on the board.
+	 * @return the occupied bitboard
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Returns the bits of the bottom cell of every column.
+	 * @return the bottom-row bitboard
+	 */
+	public long getBottomMask() {
+		return bottomMask;
+	}
+
+	/**
+	 * Returns the bits of every cell on the board.
+	 * @return the full-board bitboard
+	 */
+	public long getBoardMask() {
+		return boardMask;
+	}
+
+	/**
+	 * Returns the number of stones in a column.
+	 * @param column the column
+	 * @return the column's height
+	 */
+	public int getHeight(int column) {
+		return heights[column];
+	}
+
+	/**
+	 * Returns the number of stones played.
+	 * @return the move count
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 * @return the width of the board
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * @return the height of the board
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the length of a winning line.
+	 * @return the number of stones to connect
+	 */
+	public int getConnect() {
+		return connect;
+	}
+
+	/**
+	 * Returns the number of bits each column uses (height+1).
+	 * @return the column stride
+	 */
+	public int getStride() {
+		return stride;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int r = height-1; r >= 0; r--) {
+			for (int c = 0; c < width; c++) {
+				long bit = cellBit(c, r);
+				if ((mask & bit) == 0) builder.append('.');
+				else if ((current & bit) != 0) builder.append('x');
+				else builder.append('o');
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,126 @@
+package players;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact forms of a {@link Position}, for storing game records and cache
+ * keys and for sending positions over the network:
+ *
+ * <ul>
+ * <li>the columns played, one character each, numbered from 1 and going on
+ * with letters past 9, e.g. "4453" (a game record);</li>
+ * <li>the 64-bit {@link Position#key()}, which is unique to a position on a
+ * board of a given size;</li>
+ * <li>that key in as few bytes as the board needs: 7 for the standard board.</li>
+ * </ul>
+ *
+ * The binary form is the key rather than a base-3 number of the cells: each
+ * column is its stones' colors topped by one marker bit, so a 7x6 board
+ * takes 49 bits, where 42 cells in base 3 would need 67.
+ *
+ * Decoding writes into a position the caller supplies, clearing it first, so
+ * nothing is allocated; the position fixes the board's size and connect
+ * length. The side to move follows from the number of stones, as the first
+ * side to move has played one stone more whenever the count is odd.
+ */
+public final class PositionCodec {
+	private PositionCodec() {
+	}
+
+	/**
+	 * Appends a sequence of columns in the move string form.
+	 * @param columns the columns played, counting from 0
+	 * @param count the number of moves to write
+	 * @param out where to append them
+	 * @return <code>out</code>
+	 */
+	public static StringBuilder appendMoves(int[] columns, int count, StringBuilder out) {
+		for (int i = 0; i < count; i++) {
+			if (columns[i] < 0 || columns[i] >= 35) throw new IllegalArgumentException("Can't write column " +columns[i]);
+			out.append(Character.forDigit(columns[i]+1, 36));
+		}
+		return out;
+	}
+
+	/**
+	 * Plays a move string on an empty board.
+	 * @param moves the columns played, as written by {@link #appendMoves}
+	 * @param into the position to overwrite
+	 * @return <code>into</code>, after the moves
+	 * @throws IllegalArgumentException if a move is not a playable column
+	 */
+	public static Position decodeMoves(CharSequence moves, Position into) {
+		into.clear();
+		for (int i = 0; i < moves.length(); i++) {
+			int column = Character.digit(moves.charAt(i), 36) - 1;
+			if (column < 0 || column >= into.getWidth() || !into.canPlay(column)) {
+				throw new IllegalArgumentException("Illegal move '" +moves.charAt(i)+ "' at index " +i+ " of \"" +moves+ "\"");
+			}
+			into.play(column);
+		}
+		return into;
+	}
+
+	/**
+	 * Sets a position from its key.
+	 * @param key a key returned by {@link Position#key()} on a board of the same size
+	 * @param into the position to overwrite
+	 * @return <code>into</code>
+	 * @throws IllegalArgumentException if the key isn't one of a board of that size
+	 */
+	public static Position decodeKey(long key, Position into) {
+		int width = into.getWidth(), stride = into.getStride();
+		long columnBits = (stride == 64) ? -1L : (1L << stride) - 1;
+		if (width*stride < 64 && (key >>> (width*stride)) != 0) throw new IllegalArgumentException("Key too big for the board: " +Long.toHexString(key));
+
+		long current = 0L, mask = 0L;
+		for (int c = 0; c < width; c++) {
+			int shift = c*stride;
+			long column = (key >>> shift) & columnBits;
+			if (column == 0) throw new IllegalArgumentException("Column " +c+ " has no marker in key " +Long.toHexString(key));
+			long stones = Long.highestOneBit(column) - 1; // the marker sits on top of the column's stones
+			current |= (column & stones) << shift;
+			mask |= stones << shift;
+		}
+		into.set(current, mask);
+		return into;
+	}
+
+	/**
+	 * Returns the number of bytes the binary form takes.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @return the byte count
+	 */
+	public static int bytes(int width, int height) {
+		return (width*(height+1) + 7) / 8;
+	}
+
+	/**
+	 * Writes the binary form of a position at the buffer's position, lowest
+	 * byte first.
+	 * @param position the position
+	 * @param out the buffer, with {@link #bytes} bytes left
+	 */
+	public static void write(Position position, ByteBuffer out) {
+		long key = position.key();
+		int count = bytes(position.getWidth(), position.getHeight());
+		for (int i = 0; i < count; i++) out.put((byte)(key >>> (8*i)));
+	}
+
+	/**
+	 * Reads the binary form of a position at the buffer's position.
+	 * @param in the buffer, with {@link #bytes} bytes left
+	 * @param into the position to overwrite, on a board of the size written
+	 * @return <code>into</code>
+	 * @throws BufferUnderflowException if the buffer ends first
+	 * @throws IllegalArgumentException if the bytes aren't a position of that size
+	 */
+	public static Position read(ByteBuffer in, Position into) {
+		int count = bytes(into.getWidth(), into.getHeight());
+		long key = 0L;
+		for (int i = 0; i < count; i++) key |= (in.get() & 0xFFL) << (8*i);
+		return decodeKey(key, into);
+	}
+}
@@ -0,0 +1,274 @@
+package players;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only file of solved or searched positions, such as an opening book
+ * or an endgame tablebase, looked up by {@link Position#canonicalKey()}.
+ * A position and its mirror image share one entry, which holds the best
+ * column of the canonical one.
+ *
+ * The file is memory-mapped rather than read, so opening it costs nothing and
+ * only the pages a lookup touches are ever loaded. It holds a header, then
+ * every key in ascending order, then one packed 16-bit entry per key:
+ * <pre>
+ *   int   magic ("C4DB")
+ *   int   version
+ *   int   width, height, connect
+ *   int   flags (EXACT if the scores are solver scores)
+ *   int   count
+ *   int   maxEmpty      the most empty cells of any position in the file
+ *   long  key[count]    ascending
+ *   short entry[count]  score in the low byte, best column + 1 in the high byte
+ * </pre>
+ * A lookup is a binary search over the keys, so it takes about 20 reads for
+ * a million positions and allocates nothing. All values are big-endian.
+ */
+public final class PositionDatabase {
+	/** Returned by {@link #probe} for a position that isn't in the file. */
+	public static final int NOT_FOUND = -1;
+
+	/** Header flag: the scores are exact {@link Solver} scores. */
+	public static final int EXACT = 1;
+
+	private static final int MAGIC = 0x43344442; // "C4DB"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+
+	private final MappedByteBuffer buffer;
+	private final int width, height, connect, flags, count, maxEmpty;
+	private final int entryOffset;
+
+	// maps an open file
+	private PositionDatabase(MappedByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) throw new IOException("Not a position database");
+		if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported position database version " +buffer.getInt(4));
+		width = buffer.getInt(8);
+		height = buffer.getInt(12);
+		connect = buffer.getInt(16);
+		flags = buffer.getInt(20);
+		count = buffer.getInt(24);
+		maxEmpty = buffer.getInt(28);
+		entryOffset = HEADER_BYTES + 8*count;
+		if (buffer.capacity() != entryOffset + 2L*count) throw new IOException("Truncated position database");
+	}
+
+	/**
+	 * Opens a database file.
+	 * @param file the file, as written by {@link Builder#write}
+	 * @return the database
+	 * @throws IOException if the file can't be read or isn't a database
+	 */
+	public static PositionDatabase open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			return new PositionDatabase(buffer); // the mapping outlives the channel
+		}
+	}
+
+	/**
+	 * Looks up a position by its canonical key.
+	 * @param key the position's canonical key
+	 * @return the packed entry, or {@link #NOT_FOUND}. Use {@link #score} and
+	 * {@link #move} to unpack it; the move is one of the canonical position.
+	 */
+	public int probe(long key) {
+		int low = 0, high = count-1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long k = buffer.getLong(HEADER_BYTES + 8*middle);
+			if (k < key) low = middle+1;
+			else if (k > key) high = middle-1;
+			else return buffer.getShort(entryOffset + 2*middle) & 0xFFFF;
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Looks up a position, checking that it is on this database's board.
+	 * @param position the position
+	 * @return the packed entry, or {@link #NOT_FOUND}; its move is mirrored
+	 * if need be, so that it is a move of this position
+	 */
+	public int probe(Position position) {
+		if (position.getWidth() != width || position.getHeight() != height || position.getConnect() != connect) return NOT_FOUND;
+		int entry = probe(position.canonicalKey());
+		if (entry == NOT_FOUND || !position.isMirrored()) return entry;
+		return pack(score(entry), mirrorMove(position, move(entry)));
+	}
+
+	/**
+	 * Returns the score of a packed entry.
+	 * @param entry an entry returned by {@link #probe}
+	 * @return the score for the side to move; a {@link Solver} score if the
+	 * database is exact, and otherwise 0
+	 */
+	public static int score(int entry) {
+		return (byte)entry;
+	}
+
+	/**
+	 * Returns the best column of a packed entry.
+	 * @param entry an entry returned by {@link #probe}
+	 * @return the column, or -1 for none
+	 */
+	public static int move(int entry) {
+		return ((entry >>> 8) & 0xFF) - 1;
+	}
+
+	// packs a score and a move into an entry
+	private static int pack(int score, int move) {
+		return (score & 0xFF) | ((move+1) << 8);
+	}
+
+	// mirrors a move, leaving -1 for none as it is
+	private static int mirrorMove(Position position, int move) {
+		return (move < 0) ? move : position.mirrorColumn(move);
+	}
+
+	/**
+	 * Returns whether the scores are exact solver scores.
+	 * @return true if exact
+	 */
+	public boolean isExact() {
+		return (flags & EXACT) != 0;
+	}
+
+	/**
+	 * Returns the number of positions in the file.
+	 * @return the position count
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the most empty cells of any position in the file. A position
+	 * with more can't be in it, so there's no need to look it up.
+	 * @return the empty cell count
+	 */
+	public int getMaxEmpty() {
+		return maxEmpty;
+	}
+
+	/**
+	 * Returns the number of columns of the board the positions are on.
+	 * @return the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the length of a winning line in the game the positions are from.
+	 * @return the connect length
+	 */
+	public int getConnect() {
+		return connect;
+	}
+
+	/**
+	 * Returns the number of rows of the board the positions are on.
+	 * @return the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Collects positions in memory and writes them out as a database file.
+	 * Adding positions is thread-safe.
+	 */
+	public static final class Builder {
+		private final int width, height, connect, flags;
+		private final Map<Long, Short> entries = new HashMap<Long, Short>();
+		private int maxEmpty;
+
+		/**
+		 * Constructs an empty builder.
+		 * @param width the number of columns of the board
+		 * @param height the number of rows of the board
+		 * @param connect the length of a winning line
+		 * @param exact true if the scores will be exact solver scores
+		 */
+		public Builder(int width, int height, int connect, boolean exact) {
+			this.width = width;
+			this.height = height;
+			this.connect = connect;
+			flags = exact ? EXACT : 0;
+		}
+
+		/**
+		 * Adds a position, replacing any earlier entry for it or its mirror image.
+		 * @param position the position, on the builder's board
+		 * @param score the score for the side to move (-128 to 127)
+		 * @param move the best column, or -1 for none
+		 */
+		public synchronized void put(Position position, int score, int move) {
+			if (position.getWidth() != width || position.getHeight() != height || position.getConnect() != connect) {
+				throw new IllegalArgumentException("Position is on a different board");
+			}
+			if (score < Byte.MIN_VALUE || score > Byte.MAX_VALUE) throw new IllegalArgumentException("Score out of range: " +score);
+			if (position.isMirrored()) move = mirrorMove(position, move);
+			entries.put(position.canonicalKey(), (short)pack(score, move));
+			maxEmpty = Math.max(maxEmpty, width*height - position.getMoves());
+		}
+
+		/**
+		 * Returns whether a position has been added.
+		 * @param position the position
+		 * @return true if it has an entry
+		 */
+		public synchronized boolean contains(Position position) {
+			return entries.containsKey(position.canonicalKey());
+		}
+
+		/**
+		 * Returns the number of positions added.
+		 * @return the position count
+		 */
+		public synchronized int size() {
+			return entries.size();
+		}
+
+		/**
+		 * Writes the positions to a file, sorted by key.
+		 * @param file the file to write (replaced if it exists)
+		 * @throws IOException if the file can't be written
+		 */
+		public synchronized void write(Path file) throws IOException {
+			long[] keys = new long[entries.size()];
+			int n = 0;
+			for (long key : entries.keySet()) keys[n++] = key;
+			Arrays.sort(keys);
+
+			try (OutputStream stream = Files.newOutputStream(file);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(width);
+				out.writeInt(height);
+				out.writeInt(connect);
+				out.writeInt(flags);
+				out.writeInt(keys.length);
+				out.writeInt(maxEmpty);
+				for (long key : keys) out.writeLong(key);
+				for (long key : keys) out.writeShort(entries.get(key));
+			}
+		}
+	}
+}
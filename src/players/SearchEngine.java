@@ -0,0 +1,862 @@
+package players;
+
+import java.util.Arrays;
+
+/**
+ * The bitboard version of the miniMax search in {@link ComputerConnectFourPlayer}.
+ * It plays and takes back moves on a single {@link Position} instead of
+ * copying the rack at every node, and keeps the heuristic score up to date
+ * move by move with an {@link Evaluator} instead of rescanning every cell at
+ * every node. Unless another is set, that is an {@link IncrementalEvaluator}
+ * with the default weights, which scores exactly as the rack-based search.
+ *
+ * In {@link SearchMode#MINIMAX} mode it visits the same tree and computes the
+ * same values as the rack-based search: the computer is always the side to
+ * move at the root, and <code>maxDepth</code> is the number of plies to look
+ * ahead. In {@link SearchMode#ALPHA_BETA} mode it prunes branches that cannot
+ * change the result, trying center columns, killer moves and moves with a
+ * good history first so that cutoffs come early. It still returns the same
+ * column, since ties at the root go to the leftmost column in both modes.
+ *
+ * Alpha-beta results are kept in a {@link TranspositionTable}. A heuristic
+ * value depends on how many plies were left to search, so a stored value
+ * only cuts the search off when it was searched to exactly the depth that is
+ * needed now; other entries still supply their best move for ordering. This
+ * keeps the results identical to miniMax, even when the table is kept from
+ * one search to the next, as it is: each search ages the table's entries
+ * rather than clearing them, and carries its killer moves and its history
+ * counts, halved, over to the next root, so the work of earlier turns
+ * orders the moves of this one. A position and its mirror image have the same
+ * value, so both are stored under their {@link Position#canonicalKey()},
+ * with the best move mirrored to match. For the same reason, when the root
+ * is its own mirror image only its left half is searched: a column on the
+ * right is worth the same as its mirror on the left, which would win the tie.
+ *
+ * In {@link SearchMode#ITERATIVE_DEEPENING} mode the alpha-beta search is run
+ * one ply deeper at a time, trying the last iteration's best move first. When
+ * the time budget runs out the unfinished iteration is thrown away and the
+ * move from the deepest finished one is played.
+ *
+ * With more than one thread, both alpha-beta modes split the work at the
+ * root: the first move is searched here to get a bound, then the remaining
+ * moves are searched at the same time by other engines through a
+ * {@link ParallelSearch}, all sharing one transposition table.
+ *
+ * In {@link SearchMode#SOLVE} mode the work is handed to a {@link Solver},
+ * which plays perfectly instead of searching to a depth. It keeps its
+ * results in the engine's table, if one is set.
+ *
+ * Every mode reads the threats on the board before expanding a node. A side
+ * that can connect four at once is scored as having won without searching
+ * its moves; and unless the replies would be leaves, only moves that don't
+ * let the opponent win at once are searched: the block of a single threat,
+ * never the cell right under a threat, and none at all against two. The
+ * moves left out lose, so this never changes a value. At the root, an
+ * immediate win is played at once, rather than the leftmost column that
+ * wins, possibly later.
+ *
+ * In every mode, a position found in the opening book is played from the
+ * book without searching. Below the root, a position found in the endgame
+ * tablebase isn't searched either: it is scored as a win, loss or draw for
+ * the computer, just as if the search had reached the end of the game.
+ * With a tablebase the search no longer always agrees with miniMax, since
+ * it sees results miniMax's depth cutoff hides.
+ *
+ * Nothing is allocated per node: moves are played and taken back in place,
+ * each ply orders its moves in its own preallocated buffer, and the root
+ * returns its value and move packed into one long.
+ */
+final class SearchEngine {
+	private static final long INFINITY = Long.MAX_VALUE;  // alpha-beta bounds are longs, so best-1 can't overflow
+	private static final int KILLER_BONUS = 1 << 30;      // orders killer moves ahead of any history score
+	private static final long MIN_NODE = 0x9E3779B97F4A7C15L; // mixed into the keys of nodes where the opponent is to move
+	private static final int CLOCK_INTERVAL = 1024;       // nodes between checks of the clock (a power of 2)
+	private static final long UNKNOWN = Long.MIN_VALUE;   // returned by tablebaseValue for a position not in the tablebase
+
+	private final int maxDepth;
+	private final SearchMode mode;
+	private TranspositionTable table;
+	private Position position;
+	private Evaluator.Factory evaluatorFactory = (width, height, connect) -> new IncrementalEvaluator(width, height, connect, EvaluationWeights.DEFAULT);
+	private Evaluator evaluator;    // made by evaluatorFactory for the board of the last root
+	private int evaluatorWidth, evaluatorHeight, evaluatorConnect;
+	private int[] centerOrder;      // columns, center first
+	private int[][] killers;        // two killer columns per ply
+	private int[][] history;        // cutoff counts per side and cell
+	private int[][] moveBuffers;    // ordered moves for each ply: the count, then the moves
+	private int[][] scoreBuffers;   // ordering scores for each ply, matching moveBuffers
+	private long nodes;             // statistics of the last search: positions visited,
+	private long leaves;            // positions scored by the heuristic,
+	private long cutoffs;           // beta cutoffs,
+	private long tableHits;         // transposition table probes that found an entry,
+	private int maxPly;             // the deepest ply visited,
+	private int completedDepth;     // the depth of the deepest finished search,
+	private long elapsed;           // and how long it took, in nanoseconds
+	private int depthLimit;         // plies searched in the current iteration
+	private long timeBudget;        // milliseconds per move, or 0 for no limit
+	private long deadline;          // System.nanoTime() at which to stop
+	private boolean stopped;        // true once the time budget has run out
+	private volatile boolean cancelled; // set by another thread to stop this engine's searches
+	private boolean agesTable = true; // true if each search starts a new search in the table
+	private ParallelSearch parallel; // searches root moves on other threads, or null
+	private Solver solver;          // plays SOLVE mode, made on first use
+	private PositionDatabase book;  // moves to play without searching, or null
+	private PositionDatabase tablebase; // exact scores of endgame positions, or null
+	private boolean symmetricRoot;  // true if the root is its own mirror image, so only its left half is searched
+	private int lastRootMoves = -1; // stones on the board at the last root, to line its killer moves up with this one's
+
+	/**
+	 * Constructs a search engine.
+	 * @param maxDepth the number of plies to look ahead
+	 * @param mode the search algorithm to use
+	 */
+	SearchEngine(int maxDepth, SearchMode mode) {
+		this.maxDepth = maxDepth;
+		this.mode = mode;
+	}
+
+	/**
+	 * Sets the table alpha-beta or solver results are stored in.
+	 * @param table the table, or null to search without one
+	 */
+	void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+		solver = null; // made again around the new table
+	}
+
+	/**
+	 * Sets what makes the heuristic the search scores positions with.
+	 * @param factory the evaluator factory
+	 */
+	void setEvaluatorFactory(Evaluator.Factory factory) {
+		evaluatorFactory = factory;
+		evaluator = null;
+		if (parallel != null) parallel.setEvaluatorFactory(factory);
+	}
+
+	/**
+	 * Sets the opening book consulted before searching.
+	 * @param book the book, or null for none
+	 */
+	void setOpeningBook(PositionDatabase book) {
+		this.book = book;
+	}
+
+	/**
+	 * Sets the endgame tablebase probed before searching a position.
+	 * @param tablebase an exact database, or null for none
+	 */
+	void setTablebase(PositionDatabase tablebase) {
+		if (tablebase != null && !tablebase.isExact()) throw new IllegalArgumentException("A tablebase needs exact scores");
+		this.tablebase = tablebase;
+		if (solver != null) solver.setTablebase(tablebase);
+	}
+
+	/**
+	 * Sets the time allowed for each move in iterative deepening mode.
+	 * @param millis the budget in milliseconds, or 0 to always search to the full depth
+	 */
+	void setTimeBudget(long millis) {
+		timeBudget = millis;
+	}
+
+	/**
+	 * Sets the number of threads the alpha-beta modes search with.
+	 * @param threads the thread count; 1 searches on the calling thread only
+	 */
+	void setThreads(int threads) {
+		if (parallel != null) parallel.shutdown();
+		boolean alphaBeta = (mode == SearchMode.ALPHA_BETA || mode == SearchMode.ITERATIVE_DEEPENING);
+		parallel = (threads > 1 && alphaBeta) ? new ParallelSearch(threads, maxDepth, mode) : null;
+		if (parallel != null) parallel.setEvaluatorFactory(evaluatorFactory);
+	}
+
+	/**
+	 * Makes an engine that searches like this one, with the same table,
+	 * opening book, tablebase, heuristic and time budget, to search on
+	 * another thread.
+	 * @return the new engine, searching on one thread
+	 */
+	SearchEngine copy() {
+		SearchEngine copy = new SearchEngine(maxDepth, mode);
+		copy.table = table;
+		copy.evaluatorFactory = evaluatorFactory;
+		copy.book = book;
+		copy.tablebase = tablebase;
+		copy.timeBudget = timeBudget;
+		return copy;
+	}
+
+	/**
+	 * Stops the alpha-beta searches of this engine, which may be running on
+	 * another thread, as if their time had run out; or lets them run again.
+	 * A cancelled search returns -1, or the move of its deepest finished
+	 * iteration, and stores nothing it didn't finish.
+	 * @param cancelled true to stop the current search and any later ones
+	 */
+	void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * Sets whether each search ages the table's entries, by calling
+	 * TranspositionTable.newSearch(). An engine that runs several searches
+	 * as one task, as pondering does, turns this off and calls
+	 * {@link #ageTable} once for the whole task.
+	 * @param ages true (the default) to age the table at every search
+	 */
+	void setAgesTable(boolean ages) {
+		agesTable = ages;
+	}
+
+	/**
+	 * Ages the table's entries, as the start of a search does.
+	 */
+	void ageTable() {
+		if (table != null) table.newSearch();
+	}
+
+	/**
+	 * Forgets the killer moves and history counts carried over from earlier
+	 * searches, here and in the parallel engines, so that the next search
+	 * orders its moves as a new engine's first search would.
+	 */
+	void resetMoveOrdering() {
+		if (killers != null) {
+			for (int[] k : killers) Arrays.fill(k, -1);
+			for (int[] h : history) Arrays.fill(h, 0);
+		}
+		lastRootMoves = -1;
+		if (parallel != null) parallel.resetMoveOrdering();
+	}
+
+	/**
+	 * Finds the best column for the side to move.
+	 * @param root the position to search (left unchanged)
+	 * @return the column to play
+	 */
+	int bestMove(Position root) {
+		long start = System.nanoTime();
+		position = new Position(root);
+		if (agesTable) ageTable();
+		prepareTables();
+		resetStatistics();
+		nodes = 1;
+		stopped = false;
+
+		int move = search();
+		elapsed = System.nanoTime() - start;
+		return move;
+	}
+
+	/**
+	 * Returns the statistics of the last search.
+	 * @return a snapshot of the counters
+	 */
+	SearchStatistics getStatistics() {
+		return new SearchStatistics(nodes, leaves, cutoffs, tableHits, maxPly, completedDepth, elapsed);
+	}
+
+	// searches the root in the engine's mode
+	private int search() {
+		int value = evaluator.evaluate();
+		if (isDecided(value) || position.isFull()) return firstPlayable();
+
+		long wins = position.winningMoves();
+		if (wins != 0) {
+			completedDepth = 1; // a one-ply search would have found it
+			return Long.numberOfTrailingZeros(wins) / position.getStride();
+		}
+
+		int bookMove = lookUpMove(book);
+		if (bookMove < 0) bookMove = lookUpMove(tablebase);
+		if (bookMove >= 0) return bookMove;
+
+		if (mode == SearchMode.SOLVE) return solve();
+
+		symmetricRoot = position.isSymmetric();
+		depthLimit = Math.min(maxDepth, position.getWidth()*position.getHeight() - position.getMoves()); // no deeper than the game goes, and so within the table's depths
+		completedDepth = depthLimit;
+		deadline = Long.MAX_VALUE;
+		if (parallel != null) parallel.setRoot(position, table, tablebase);
+		if (mode == SearchMode.ALPHA_BETA) return moveOf(alphaBetaRoot(-1));
+		if (mode == SearchMode.ITERATIVE_DEEPENING) return iterativeDeepening();
+
+		int best = Integer.MIN_VALUE;
+		int action = firstPlayable();
+		for (int c = 0; c < position.getWidth(); c++) {
+			if (!position.canPlay(c)) continue;
+			if (symmetricRoot && c > position.mirrorColumn(c)) break;
+			play(c, true);
+			int u = minVal(1);
+			undo(c, true);
+			if (u > best) {
+				best = u;
+				action = c;
+			}
+		}
+		return action;
+	}
+
+	// the stored best move of the root, or -1 if there is no database or the root isn't in it
+	private int lookUpMove(PositionDatabase database) {
+		if (database == null) return -1;
+		int entry = database.probe(position);
+		if (entry == PositionDatabase.NOT_FOUND) return -1;
+		int move = PositionDatabase.move(entry);
+		return (move >= 0 && position.canPlay(move)) ? move : -1;
+	}
+
+	// the cells worth playing at a node that isn't a leaf, when the side to move can't win at once: every
+	// playable one if the replies are leaves, or else only those that don't let the opponent win on its reply
+	private long candidateMoves(int depth, int limit) {
+		return (depth+1 < limit) ? position.nonLosingMoves() : position.playableMask();
+	}
+
+	// true if a column's playable cell is among some cells
+	private boolean includes(long cells, int column) {
+		return (cells & position.columnMask(column)) != 0;
+	}
+
+	// the value of the position from the tablebase, as a heuristic value for the computer; UNKNOWN if it isn't there
+	private long tablebaseValue(boolean computer) {
+		if (tablebase == null) return UNKNOWN;
+		if (position.getWidth()*position.getHeight() - position.getMoves() > tablebase.getMaxEmpty()) return UNKNOWN;
+		int entry = tablebase.probe(position);
+		if (entry == PositionDatabase.NOT_FOUND) return UNKNOWN;
+		int score = PositionDatabase.score(entry);
+		if (score == 0) return 0;
+		return ((score > 0) == computer) ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+	}
+
+	// plays perfectly, searching to the end of the game
+	private int solve() {
+		if (solver == null) {
+			solver = (table != null) ? new Solver(table) : new Solver();
+			solver.setTablebase(tablebase);
+		}
+		int move = solver.bestMove(position);
+		nodes += solver.getNodeCount();
+		completedDepth = position.getWidth()*position.getHeight() - position.getMoves();
+		return move;
+	}
+
+	/**
+	 * Returns the number of positions visited by the last search, including
+	 * the root.
+	 * @return the node count
+	 */
+	long getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Adds another engine's counters to this one's, and resets the other's.
+	 * Used to total the work of the parallel engines.
+	 * @param other the engine to take the counters from
+	 */
+	void takeStatistics(SearchEngine other) {
+		nodes += other.nodes;
+		leaves += other.leaves;
+		cutoffs += other.cutoffs;
+		tableHits += other.tableHits;
+		maxPly = Math.max(maxPly, other.maxPly);
+		other.resetStatistics();
+	}
+
+	// zeroes the counters
+	private void resetStatistics() {
+		nodes = leaves = cutoffs = tableHits = 0;
+		maxPly = completedDepth = 0;
+	}
+
+	// the value of a position where the computer is to move
+	private int maxVal(int depth) {
+		nodes++;
+		if (depth > maxPly) maxPly = depth;
+		int value = evaluator.evaluate();
+		if (isDecided(value) || position.isFull() || depth >= maxDepth) {
+			leaves++;
+			return value;
+		}
+		long exact = tablebaseValue(true);
+		if (exact != UNKNOWN) {
+			leaves++;
+			return (int)exact;
+		}
+
+		if (position.canWinNext()) {
+			leaves++;
+			return Integer.MAX_VALUE;
+		}
+		long candidates = candidateMoves(depth, maxDepth);
+		if (candidates == 0) {
+			leaves++;
+			return Integer.MIN_VALUE;
+		}
+
+		value = Integer.MIN_VALUE;
+		for (int c = 0; c < position.getWidth(); c++) {
+			if (!includes(candidates, c)) continue;
+			play(c, true);
+			int u = minVal(depth+1);
+			undo(c, true);
+			if (u > value) value = u;
+		}
+		return value;
+	}
+
+	// the value of a position where the opponent is to move
+	private int minVal(int depth) {
+		nodes++;
+		if (depth > maxPly) maxPly = depth;
+		int value = evaluator.evaluate();
+		if (isDecided(value) || position.isFull() || depth >= maxDepth) {
+			leaves++;
+			return value;
+		}
+		long exact = tablebaseValue(false);
+		if (exact != UNKNOWN) {
+			leaves++;
+			return (int)exact;
+		}
+
+		if (position.canWinNext()) {
+			leaves++;
+			return Integer.MIN_VALUE;
+		}
+		long candidates = candidateMoves(depth, maxDepth);
+		if (candidates == 0) {
+			leaves++;
+			return Integer.MAX_VALUE;
+		}
+
+		value = Integer.MAX_VALUE;
+		for (int c = 0; c < position.getWidth(); c++) {
+			if (!includes(candidates, c)) continue;
+			play(c, false);
+			int u = maxVal(depth+1);
+			undo(c, false);
+			if (u < value) value = u;
+		}
+		return value;
+	}
+
+	/**
+	 * Searches the root with alpha-beta. A column to the left of the best one
+	 * so far is searched with alpha just below the best value, so that an
+	 * equal value is found exactly and the leftmost best column wins, as in
+	 * miniMax.
+	 * @param firstMove a column to search first, or -1
+	 * @return the value and column to play, packed by {@link #pack}; the column
+	 * is -1 if the time budget ran out
+	 */
+	private long alphaBetaRoot(int firstMove) {
+		int[] moves = orderMoves(0, true, firstMove, position.playableMask());
+		if (parallel != null && moves[0] > 1) return parallelRoot(moves);
+
+		long best = -INFINITY;
+		int action = moves[1];
+		for (int i = 1; i <= moves[0]; i++) {
+			int c = moves[i];
+			long alpha = (c < action) ? best-1 : best;
+			play(c, true);
+			long u = alphaBetaMin(1, alpha, INFINITY);
+			undo(c, true);
+			if (stopped) return pack(0, -1);
+			if (u > best || (u == best && c < action)) {
+				best = u;
+				action = c;
+			}
+		}
+		return pack((int)best, action);
+	}
+
+	/**
+	 * Searches the first root move on this thread, then all the others at
+	 * once on the parallel engines, each with alpha just below the first
+	 * move's value. Any move at least as good is then valued exactly, so the
+	 * leftmost best column is still the one chosen.
+	 * @param moves the ordered root moves, as returned by orderMoves
+	 * @return the value and column to play, packed by {@link #pack}; the column
+	 * is -1 if the time budget ran out
+	 */
+	private long parallelRoot(int[] moves) {
+		int action = moves[1];
+		play(action, true);
+		long best = alphaBetaMin(1, -INFINITY, INFINITY);
+		undo(action, true);
+		if (stopped) return pack(0, -1);
+
+		long[] values = parallel.searchRootMoves(moves, best-1, depthLimit, deadline);
+		parallel.addStatisticsTo(this);
+		if (values == null) {
+			stopped = true;
+			return pack(0, -1);
+		}
+		for (int i = 2; i <= moves[0]; i++) {
+			int c = moves[i];
+			if (values[i] > best || (values[i] == best && c < action)) {
+				best = values[i];
+				action = c;
+			}
+		}
+		return pack((int)best, action);
+	}
+
+	// packs a value and a move into one long: the value in the high half
+	private static long pack(int value, int move) {
+		return ((long)value << 32) | (move & 0xFFFFFFFFL);
+	}
+
+	// the value half of a packed result
+	private static int valueOf(long packed) {
+		return (int)(packed >> 32);
+	}
+
+	// the move half of a packed result
+	private static int moveOf(long packed) {
+		return (int)packed;
+	}
+
+	/**
+	 * Prepares this engine to search root moves for a ParallelSearch.
+	 * @param root the root position
+	 * @param table the shared transposition table
+	 * @param tablebase the shared endgame tablebase, or null
+	 */
+	void setRoot(Position root, TranspositionTable table, PositionDatabase tablebase) {
+		position = new Position(root);
+		this.table = table;
+		this.tablebase = tablebase;
+		prepareTables();
+		resetStatistics();
+	}
+
+	/**
+	 * Searches one root move of the position given to {@link #setRoot}.
+	 * @param column the move
+	 * @param alpha the lower bound of the search window
+	 * @param depthLimit the number of plies to search, including the move
+	 * @param deadline the System.nanoTime() at which to give up
+	 * @return the move's value, or null if the deadline passed first
+	 */
+	Long searchRootMove(int column, long alpha, int depthLimit, long deadline) {
+		this.depthLimit = depthLimit;
+		this.deadline = deadline;
+		stopped = false;
+		play(column, true);
+		long u = alphaBetaMin(1, alpha, INFINITY);
+		undo(column, true);
+		return stopped ? null : u;
+	}
+
+	/**
+	 * Runs alpha-beta searches one ply deeper each time, until the depth
+	 * cutoff is reached, the board is filled, a win is found, or the time
+	 * budget runs out. The first iteration always runs to the end, so there
+	 * is always a move to return.
+	 * @return the column chosen by the deepest finished iteration
+	 */
+	private int iterativeDeepening() {
+		deadline = (timeBudget > 0) ? System.nanoTime() + timeBudget*1000000L : Long.MAX_VALUE;
+		int emptySpaces = position.getWidth()*position.getHeight() - position.getMoves();
+		int lastDepth = Math.min(maxDepth, emptySpaces);
+
+		int action = -1;
+		completedDepth = 0;
+		for (depthLimit = 1; depthLimit <= lastDepth; depthLimit++) {
+			if (depthLimit > 1 && (cancelled || System.nanoTime() >= deadline)) break;
+			long result = alphaBetaRoot(action);
+			if (stopped) break;
+			action = moveOf(result);
+			completedDepth = depthLimit;
+			if (valueOf(result) == Integer.MAX_VALUE) break; // can't do better than a forced win
+		}
+		stopped = false;
+		return action;
+	}
+
+	// stops the search if the time budget has run out or it was cancelled (but never during the first iteration)
+	private void checkClock() {
+		if (depthLimit > 1 && (cancelled || System.nanoTime() >= deadline)) stopped = true;
+	}
+
+	// alpha-beta value of a position where the computer is to move
+	private long alphaBetaMax(int depth, long alpha, long beta) {
+		if ((++nodes & (CLOCK_INTERVAL-1)) == 0) checkClock();
+		if (stopped) return 0;
+		if (depth > maxPly) maxPly = depth;
+		int value = evaluator.evaluate();
+		if (isDecided(value) || position.isFull() || depth >= depthLimit) {
+			leaves++;
+			return value;
+		}
+		long exact = tablebaseValue(true);
+		if (exact != UNKNOWN) {
+			leaves++;
+			return exact;
+		}
+
+		if (position.canWinNext()) {
+			leaves++;
+			return Integer.MAX_VALUE;
+		}
+		long candidates = candidateMoves(depth, depthLimit);
+		if (candidates == 0) {
+			leaves++;
+			return Integer.MIN_VALUE;
+		}
+
+		long key = position.key();
+		long mirrorKey = position.mirror(key);
+		boolean mirrored = mirrorKey < key;
+		if (mirrored) key = mirrorKey;
+		long entry = probe(key);
+		if (entry != 0 && cutsOff(entry, depth, alpha, beta)) return TranspositionTable.value(entry);
+
+		long alphaOrig = alpha;
+		long best = -INFINITY;
+		int bestMove = -1;
+		int[] moves = orderMoves(depth, true, orient(TranspositionTable.move(entry), mirrored), candidates);
+		for (int i = 1; i <= moves[0]; i++) {
+			int c = moves[i];
+			play(c, true);
+			long u = alphaBetaMin(depth+1, alpha, beta);
+			undo(c, true);
+			if (stopped) return 0;
+			if (u > best) {
+				best = u;
+				bestMove = c;
+				if (u > alpha) alpha = u;
+				if (alpha >= beta) {
+					recordCutoff(depth, c, true);
+					break;
+				}
+			}
+		}
+		store(key, depth, best, alphaOrig, beta, orient(bestMove, mirrored));
+		return best;
+	}
+
+	// alpha-beta value of a position where the opponent is to move
+	private long alphaBetaMin(int depth, long alpha, long beta) {
+		if ((++nodes & (CLOCK_INTERVAL-1)) == 0) checkClock();
+		if (stopped) return 0;
+		if (depth > maxPly) maxPly = depth;
+		int value = evaluator.evaluate();
+		if (isDecided(value) || position.isFull() || depth >= depthLimit) {
+			leaves++;
+			return value;
+		}
+		long exact = tablebaseValue(false);
+		if (exact != UNKNOWN) {
+			leaves++;
+			return exact;
+		}
+
+		if (position.canWinNext()) {
+			leaves++;
+			return Integer.MIN_VALUE;
+		}
+		long candidates = candidateMoves(depth, depthLimit);
+		if (candidates == 0) {
+			leaves++;
+			return Integer.MAX_VALUE;
+		}
+
+		long key = position.key();
+		long mirrorKey = position.mirror(key);
+		boolean mirrored = mirrorKey < key;
+		key = (mirrored ? mirrorKey : key) ^ MIN_NODE;
+		long entry = probe(key);
+		if (entry != 0 && cutsOff(entry, depth, alpha, beta)) return TranspositionTable.value(entry);
+
+		long betaOrig = beta;
+		long best = INFINITY;
+		int bestMove = -1;
+		int[] moves = orderMoves(depth, false, orient(TranspositionTable.move(entry), mirrored), candidates);
+		for (int i = 1; i <= moves[0]; i++) {
+			int c = moves[i];
+			play(c, false);
+			long u = alphaBetaMax(depth+1, alpha, beta);
+			undo(c, false);
+			if (stopped) return 0;
+			if (u < best) {
+				best = u;
+				bestMove = c;
+				if (u < beta) beta = u;
+				if (alpha >= beta) {
+					recordCutoff(depth, c, false);
+					break;
+				}
+			}
+		}
+		store(key, depth, best, alpha, betaOrig, orient(bestMove, mirrored));
+		return best;
+	}
+
+	// turns a move of the canonical position into one of this position, or back
+	private int orient(int move, boolean mirrored) {
+		return (mirrored && move >= 0) ? position.mirrorColumn(move) : move;
+	}
+
+	// looks a node up in the table; returns 0 if there is no table or no entry
+	private long probe(long key) {
+		if (table == null) return 0;
+		long entry = table.probe(key);
+		if (entry != 0) tableHits++;
+		return entry;
+	}
+
+	// true if a table entry, searched to the same depth, settles the node's value
+	private boolean cutsOff(long entry, int depth, long alpha, long beta) {
+		if (TranspositionTable.depth(entry) != depthLimit - depth) return false;
+		int value = TranspositionTable.value(entry);
+		switch (TranspositionTable.bound(entry)) {
+			case TranspositionTable.EXACT: return true;
+			case TranspositionTable.LOWER: return value >= beta;
+			case TranspositionTable.UPPER: return value <= alpha;
+			default: return false;
+		}
+	}
+
+	// records a node's value, and whether it is exact or only a bound, given the window it was searched with
+	private void store(long key, int depth, long value, long alpha, long beta, int bestMove) {
+		if (table == null) return;
+		int bound = TranspositionTable.EXACT;
+		if (value <= alpha) bound = TranspositionTable.UPPER;
+		else if (value >= beta) bound = TranspositionTable.LOWER;
+		table.store(key, (int)value, depthLimit - depth, bound, bestMove);
+	}
+
+	/**
+	 * Lists the columns to search, best candidates first: the table's best
+	 * move, then killer moves for this ply, then by history score, with center
+	 * columns breaking ties.
+	 * @param depth the ply being searched
+	 * @param computer true if the computer is to move
+	 * @param hashMove the best move stored in the table, or -1
+	 * @param candidates the cells of the moves to list
+	 * @return the number of moves, followed by the moves
+	 */
+	private int[] orderMoves(int depth, boolean computer, int hashMove, long candidates) {
+		int width = position.getWidth();
+		int[] moves = moveBuffers[depth];
+		int[] scores = scoreBuffers[depth];
+		int[] sideHistory = history[computer ? 0 : 1];
+		int count = 0;
+
+		for (int i = 0; i < width; i++) {
+			int c = centerOrder[i];
+			if (!includes(candidates, c)) continue;
+			if (depth == 0 && symmetricRoot && c > position.mirrorColumn(c)) continue;
+
+			int score = sideHistory[cellIndex(c)];
+			if (c == hashMove) score = KILLER_BONUS+2;
+			else if (c == killers[depth][0]) score = KILLER_BONUS+1;
+			else if (c == killers[depth][1]) score = KILLER_BONUS;
+
+			// insertion sort, keeping center order among equal scores
+			int j = ++count;
+			while (j > 1 && scores[j-1] < score) {
+				moves[j] = moves[j-1];
+				scores[j] = scores[j-1];
+				j--;
+			}
+			moves[j] = c;
+			scores[j] = score;
+		}
+		moves[0] = count;
+		return moves;
+	}
+
+	// remembers a move that caused a beta cutoff
+	private void recordCutoff(int depth, int column, boolean computer) {
+		cutoffs++;
+		if (killers[depth][0] != column) {
+			killers[depth][1] = killers[depth][0];
+			killers[depth][0] = column;
+		}
+		int remaining = depthLimit - depth;
+		history[computer ? 0 : 1][cellIndex(column)] += remaining*remaining;
+	}
+
+	// the bit index of the cell a move in this column would fill
+	private int cellIndex(int column) {
+		return column*position.getStride() + position.getHeight(column);
+	}
+
+	// true if a heuristic value means one side has four in a row
+	private static boolean isDecided(int value) {
+		return value == Integer.MAX_VALUE || value == Integer.MIN_VALUE;
+	}
+
+	// plays a move on both the position and the evaluator
+	private void play(int column, boolean computer) {
+		evaluator.add(cellIndex(column), computer);
+		position.play(column);
+	}
+
+	// takes a move back on both the position and the evaluator
+	private void undo(int column, boolean computer) {
+		position.undo(column);
+		evaluator.remove(cellIndex(column), computer);
+	}
+
+	// returns the leftmost column that isn't full
+	private int firstPlayable() {
+		for (int c = 0; c < position.getWidth(); c++) {
+			if (position.canPlay(c)) return c;
+		}
+		return 0;
+	}
+
+	// keeps what the last search learned about move order for a root some plies later: its killers move up
+	// that many plies and its history counts are halved, so they still count but newer cutoffs soon outweigh them;
+	// for a root that can't follow the last one, every killer and count is dropped
+	private void carryOverOrdering(int plies) {
+		if (plies < 0 || plies > maxDepth) {
+			for (int[] k : killers) Arrays.fill(k, -1);
+			for (int[] h : history) Arrays.fill(h, 0);
+			return;
+		}
+		for (int d = 0; d <= maxDepth; d++) {
+			int from = d + plies;
+			killers[d][0] = (from <= maxDepth) ? killers[from][0] : -1;
+			killers[d][1] = (from <= maxDepth) ? killers[from][1] : -1;
+		}
+		for (int[] h : history) {
+			for (int i = 0; i < h.length; i++) h[i] >>= 1;
+		}
+	}
+
+	// sets up the evaluator and move-ordering tables for the current root, allocating them only for a new board size
+	private void prepareTables() {
+		int width = position.getWidth();
+		int height = position.getHeight();
+		boolean sameBoard = (centerOrder != null && centerOrder.length == width);
+		if (!sameBoard) {
+			killers = new int[maxDepth+1][2];
+			history = new int[2][64];
+			moveBuffers = new int[maxDepth+1][width+1];
+			scoreBuffers = new int[maxDepth+1][width+1];
+
+			centerOrder = new int[width];
+			for (int i = 0; i < width; i++) {
+				centerOrder[i] = width/2 + (1 - 2*(i%2))*(i+1)/2; // 3, 2, 4, 1, 5, 0, 6 on the standard board
+			}
+		}
+		boolean sameRoots = sameBoard && evaluator != null && evaluatorHeight == height; // the last root's cells line up with these
+		int connect = position.getConnect();
+		if (evaluator == null || evaluatorWidth != width || evaluatorHeight != height || evaluatorConnect != connect) {
+			evaluator = evaluatorFactory.create(width, height, connect);
+			evaluatorWidth = width;
+			evaluatorHeight = height;
+			evaluatorConnect = connect;
+		}
+		carryOverOrdering(sameRoots ? position.getMoves() - lastRootMoves : -1);
+		lastRootMoves = position.getMoves();
+		evaluator.reset(position.getCurrent(), position.getOpponent()); // the computer is to move at the root
+	}
+}
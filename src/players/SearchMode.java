@@ -0,0 +1,26 @@
+package players;
+
+/**
+ * The search algorithms a {@link ComputerConnectFourPlayer} can use.
+ */
+public enum SearchMode {
+	/** Plain miniMax: every move is searched to the full depth. */
+	MINIMAX,
+
+	/** MiniMax with alpha-beta pruning and move ordering. Picks the same moves as MINIMAX. */
+	ALPHA_BETA,
+
+	/**
+	 * Alpha-beta, searched one ply deeper at a time until the player's time
+	 * budget runs out or its depth is reached. Plays the move of the deepest
+	 * search that finished.
+	 */
+	ITERATIVE_DEEPENING,
+
+	/**
+	 * Perfect play: the position is solved to the end of the game with a
+	 * {@link Solver}, and the player's depth is ignored. Fast from the
+	 * midgame on; the first few moves of a game can take seconds.
+	 */
+	SOLVE
+}
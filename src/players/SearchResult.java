@@ -0,0 +1,41 @@
+package players;
+
+/**
+ * The column a computer player chose, together with the statistics of the
+ * search that chose it.
+ */
+public final class SearchResult {
+	private final int column;
+	private final SearchStatistics statistics;
+
+	/**
+	 * Constructs a result.
+	 * @param column the column chosen
+	 * @param statistics the statistics of the search
+	 */
+	public SearchResult(int column, SearchStatistics statistics) {
+		this.column = column;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Returns the column chosen.
+	 * @return the column to play
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Returns the statistics of the search.
+	 * @return the statistics
+	 */
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public String toString() {
+		return "column=" +column+ " " +statistics;
+	}
+}
@@ -0,0 +1,116 @@
+package players;
+
+/**
+ * The work done by one search: how many positions it visited, how many it
+ * scored with the heuristic, how often it pruned, how often the transposition
+ * table already knew a position, how deep it went and how long it took.
+ *
+ * Statistics are immutable snapshots; the counters of a parallel search are
+ * the totals over all its threads.
+ */
+public final class SearchStatistics {
+	private final long nodes;
+	private final long leafEvaluations;
+	private final long cutoffs;
+	private final long tableHits;
+	private final int maxDepth;
+	private final int completedDepth;
+	private final long elapsedNanos;
+
+	/**
+	 * Constructs a snapshot.
+	 * @param nodes the number of positions visited
+	 * @param leafEvaluations the number of positions scored without searching further
+	 * @param cutoffs the number of beta cutoffs
+	 * @param tableHits the number of transposition table probes that found an entry
+	 * @param maxDepth the deepest ply visited
+	 * @param completedDepth the depth of the deepest search that finished
+	 * @param elapsedNanos the time taken, in nanoseconds
+	 */
+	public SearchStatistics(long nodes, long leafEvaluations, long cutoffs, long tableHits,
+			int maxDepth, int completedDepth, long elapsedNanos) {
+		this.nodes = nodes;
+		this.leafEvaluations = leafEvaluations;
+		this.cutoffs = cutoffs;
+		this.tableHits = tableHits;
+		this.maxDepth = maxDepth;
+		this.completedDepth = completedDepth;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of positions visited, the root included.
+	 * @return the node count
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of positions that were scored rather than searched:
+	 * wins, full boards and positions at the depth cutoff.
+	 * @return the leaf count
+	 */
+	public long getLeafEvaluations() {
+		return leafEvaluations;
+	}
+
+	/**
+	 * Returns the number of times a move was good enough to skip its brothers.
+	 * Always 0 for MINIMAX.
+	 * @return the cutoff count
+	 */
+	public long getCutoffs() {
+		return cutoffs;
+	}
+
+	/**
+	 * Returns the number of transposition table probes that found the position.
+	 * Always 0 for a search without a table, such as MINIMAX or the search of
+	 * a rack too big for a bitboard.
+	 * @return the hit count
+	 */
+	public long getTableHits() {
+		return tableHits;
+	}
+
+	/**
+	 * Returns the deepest ply below the root that was visited.
+	 * @return the depth in plies
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the depth of the deepest search that finished. This is less than
+	 * the player's depth when iterative deepening ran out of time, and 0 when
+	 * the game was already over.
+	 * @return the depth in plies
+	 */
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * Returns how long the search took.
+	 * @return the time in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the search speed.
+	 * @return the nodes visited per second
+	 */
+	public double getNodesPerSecond() {
+		return (elapsedNanos == 0) ? 0 : nodes * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "nodes=" +nodes+ " leaves=" +leafEvaluations+ " cutoffs=" +cutoffs+ " ttHits=" +tableHits
+				+ " maxDepth=" +maxDepth+ " completedDepth=" +completedDepth+ " elapsedNs=" +elapsedNanos;
+	}
+}
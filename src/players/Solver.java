@@ -0,0 +1,294 @@
+package players;
+
+/**
+ * Finds the exact game-theoretic value of a position, by searching every
+ * line to the end of the game. This is the approach of Pascal Pons's Connect
+ * Four solver: negamax with alpha-beta pruning on bitboards, a transposition
+ * table, and a series of null-window searches that narrow down the score.
+ *
+ * Scores count how soon the game is won. A positive score means the side to
+ * move wins: it is the number of its own stones it would still have in hand
+ * after its winning move, plus one. So winning with the last stone of the
+ * game scores 1, and winning sooner scores more. A negative score means the
+ * side to move loses in the same way, and 0 means a draw with best play.
+ *
+ * The search never looks at moves that lose at once. Only columns that
+ * don't give the opponent an immediate win are expanded, and the side to
+ * move's own immediate wins are found before searching, so every node is
+ * known not to be won in one. Moves are tried in order of how many winning
+ * cells they create, center columns first among equals.
+ *
+ * Positions found in an endgame tablebase, if one is set, aren't searched:
+ * their exact score is taken from it.
+ *
+ * A solver keeps its table from one position to the next, which makes
+ * solving the positions of one game much faster than solving each alone,
+ * so keep one solver rather than making one per position.
+ *
+ * Unless it is given a table, a solver makes its own when a position first
+ * needs searching, sized for that position's empty cells: 1 MB for up to 24
+ * of them, doubling with each cell more, up to the size it was constructed
+ * with. So an endgame doesn't wait for 64 MB to be zeroed, and a position
+ * won in one move makes no table at all. A later position with more empty
+ * cells than the table was made for gets a new, bigger one.
+ *
+ * A solver is not thread-safe, but solvers on different threads may share
+ * a table.
+ */
+public final class Solver {
+	/** The size of the table used when none is given. */
+	public static final int DEFAULT_MEGABYTES = 64;
+
+	private final int megabytes;       // the most the table may take, if the solver makes it; 0 if given one
+	private TranspositionTable table;  // null until a position needs searching
+	private int tableEmpty;            // the most empty cells of a position the table was sized for
+	private int width, height, cells;
+	private Position position;
+	private int[] columnOrder;     // columns, center first
+	private int[][] moveBuffers;   // ordered moves for each move number
+	private int[][] scoreBuffers;  // ordering scores, matching moveBuffers
+	private long nodes;
+	private PositionDatabase tablebase; // exact scores of endgame positions, or null
+	private int tablebaseMoves;         // positions with at least this many moves may be in the tablebase
+
+	/**
+	 * Constructs a solver whose table may grow to the default size.
+	 */
+	public Solver() {
+		this(DEFAULT_MEGABYTES);
+	}
+
+	/**
+	 * Constructs a solver that makes its own table as positions need it.
+	 * @param megabytes the most memory the table may use
+	 */
+	public Solver(int megabytes) {
+		if (megabytes < 1) throw new IllegalArgumentException("Table size must be at least 1 MB, not " +megabytes);
+		this.megabytes = megabytes;
+	}
+
+	/**
+	 * Constructs a solver.
+	 * @param table the table to keep results in. Don't share it with a
+	 * heuristic search, whose values mean something else.
+	 */
+	public Solver(TranspositionTable table) {
+		this.table = table;
+		megabytes = 0;
+		tableEmpty = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Sets an endgame tablebase to take the scores of positions near the end
+	 * of the game from.
+	 * @param tablebase an exact database, or null to search every position
+	 */
+	public void setTablebase(PositionDatabase tablebase) {
+		if (tablebase != null && !tablebase.isExact()) throw new IllegalArgumentException("A tablebase needs exact scores");
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Returns the exact score of a position, as described above.
+	 * @param root the position to solve (left unchanged); the game must not be over
+	 * @return the score for the side to move
+	 */
+	public int solve(Position root) {
+		prepare(root);
+		return solve();
+	}
+
+	/**
+	 * Returns the exact score of playing each column.
+	 * @param root the position to solve (left unchanged); the game must not be over
+	 * @return the score of each column for the side to move, or
+	 * Integer.MIN_VALUE for a full column
+	 */
+	public int[] analyze(Position root) {
+		prepare(root);
+		int[] scores = new int[width];
+		for (int c = 0; c < width; c++) {
+			if (!position.canPlay(c)) scores[c] = Integer.MIN_VALUE;
+			else scores[c] = scoreMove(c);
+		}
+		return scores;
+	}
+
+	/**
+	 * Returns a best column to play: one with the highest score, taking the
+	 * column nearest the center among equals.
+	 * @param root the position to solve (left unchanged); the game must not be over
+	 * @return the column to play
+	 */
+	public int bestMove(Position root) {
+		prepare(root);
+		int best = Integer.MIN_VALUE;
+		int action = -1;
+		boolean symmetric = position.isSymmetric();
+		for (int c : columnOrder) {
+			if (!position.canPlay(c)) continue;
+			if (symmetric && c > position.mirrorColumn(c)) continue; // worth the same as its mirror, which comes first
+			int score = scoreMove(c);
+			if (score > best) {
+				best = score;
+				action = c;
+			}
+		}
+		return action;
+	}
+
+	/**
+	 * Returns the number of positions searched since the last call to
+	 * {@link #solve}, {@link #analyze} or {@link #bestMove}.
+	 * @return the node count
+	 */
+	public long getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	public void reset() {
+		if (table != null) table.clear();
+	}
+
+	// the score of a column for the side to move
+	private int scoreMove(int column) {
+		if (position.isWinningMove(column)) return (cells + 1 - position.getMoves()) / 2;
+		position.play(column);
+		int score = position.isFull() ? 0 : -solve();
+		position.undo(column);
+		return score;
+	}
+
+	// the score of the current position, narrowing the window around it with null-window searches
+	private int solve() {
+		int moves = position.getMoves();
+		if (position.canWinNext()) return (cells + 1 - moves) / 2;
+		if (cells - moves > tableEmpty) makeTable(cells - moves);
+
+		int min = -(cells - moves) / 2;
+		int max = (cells + 1 - moves) / 2;
+		while (min < max) {
+			int med = min + (max - min) / 2;
+			// try closer to 0 first: most positions are near it, and those searches are cheap
+			if (med <= 0 && min / 2 < med) med = min / 2;
+			else if (med >= 0 && max / 2 > med) med = max / 2;
+			int r = negamax(med, med + 1);
+			if (r <= med) max = r;
+			else min = r;
+		}
+		return min;
+	}
+
+	// the score of the current position if it lies within (alpha, beta), else a bound on it;
+	// the side to move must not be able to win at once
+	private int negamax(int alpha, int beta) {
+		nodes++;
+		int moves = position.getMoves();
+
+		long next = position.nonLosingMoves();
+		if (next == 0) return -(cells - moves) / 2; // every move lets the opponent win
+		if (moves >= cells - 2) return 0;           // neither side can win with what's left
+
+		int min = -(cells - 2 - moves) / 2; // the opponent can't win on its next move
+		if (alpha < min) {
+			alpha = min;
+			if (alpha >= beta) return alpha;
+		}
+		int max = (cells - 1 - moves) / 2;  // we can't win on this move
+
+		if (moves >= tablebaseMoves && tablebase != null) {
+			int entry = tablebase.probe(position);
+			if (entry != PositionDatabase.NOT_FOUND) return PositionDatabase.score(entry);
+		}
+
+		long key = position.canonicalKey(); // a position and its mirror image have the same score
+		long entry = table.probe(key);
+		if (entry != 0) {
+			int value = TranspositionTable.value(entry);
+			if (TranspositionTable.bound(entry) == TranspositionTable.LOWER) {
+				if (value > min) min = value;
+				if (alpha < min) {
+					alpha = min;
+					if (alpha >= beta) return alpha;
+				}
+			}
+			else if (value < max) {
+				max = value;
+			}
+		}
+		if (beta > max) {
+			beta = max;
+			if (alpha >= beta) return beta;
+		}
+
+		int[] order = orderMoves(next, moves);
+		for (int i = 1; i <= order[0]; i++) {
+			int c = order[i];
+			position.play(c);
+			int score = -negamax(-beta, -alpha);
+			position.undo(c);
+			if (score >= beta) {
+				table.store(key, score, cells - moves, TranspositionTable.LOWER, c);
+				return score;
+			}
+			if (score > alpha) alpha = score;
+		}
+		table.store(key, alpha, cells - moves, TranspositionTable.UPPER, -1);
+		return alpha;
+	}
+
+	// makes a table big enough to solve a position with some empty cells
+	private void makeTable(int empty) {
+		int size = (int)Math.min(megabytes, 1L << Math.max(0, Math.min(30, empty - 24)));
+		table = new TranspositionTable(size, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		tableEmpty = (size == megabytes) ? Integer.MAX_VALUE : empty;
+	}
+
+	// the columns of the given moves, those creating the most winning cells first; the count is at index 0
+	private int[] orderMoves(long next, int ply) {
+		int[] order = moveBuffers[ply];
+		int[] scores = scoreBuffers[ply];
+		int count = 0;
+		long current = position.getCurrent();
+		for (int c : columnOrder) {
+			long move = next & position.columnMask(c);
+			if (move == 0) continue;
+			int score = Long.bitCount(position.winningSquares(current | move));
+
+			// insertion sort, keeping the center-first order among equals
+			int i = ++count;
+			while (i > 1 && scores[i-1] < score) {
+				order[i] = order[i-1];
+				scores[i] = scores[i-1];
+				i--;
+			}
+			order[i] = c;
+			scores[i] = score;
+		}
+		order[0] = count;
+		return order;
+	}
+
+	// copies the root and sizes the buffers for its board
+	private void prepare(Position root) {
+		if (root.lastMoverWon() || root.isFull()) throw new IllegalArgumentException("The game is already over");
+		position = new Position(root);
+		nodes = 0;
+		if (table != null) table.newSearch();
+		tablebaseMoves = (tablebase == null) ? Integer.MAX_VALUE : root.getWidth()*root.getHeight() - tablebase.getMaxEmpty();
+		if (columnOrder != null && width == root.getWidth() && height == root.getHeight()) return;
+
+		width = root.getWidth();
+		height = root.getHeight();
+		cells = width*height;
+		columnOrder = new int[width];
+		for (int i = 0; i < width; i++) {
+			columnOrder[i] = width/2 + (1 - 2*(i % 2)) * (i+1) / 2; // 3, 2, 4, 1, 5, 0, 6 for 7 columns
+		}
+		moveBuffers = new int[cells+1][width+1];
+		scoreBuffers = new int[cells+1][width+1];
+	}
+}
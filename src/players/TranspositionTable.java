@@ -0,0 +1,218 @@
+package players;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results, indexed by position key, so that a
+ * position reached through different move orders is only searched once.
+ *
+ * Entries live in two parallel <code>long</code> arrays, so the table never
+ * allocates after construction. Each entry packs the value, the depth it was
+ * searched to, the bound type, the best move and the search it was last
+ * used by into a single long.
+ *
+ * A table is meant to be kept from one move to the next, and from game to
+ * game, so that work carries over. Calling {@link #newSearch} at the start of
+ * each search ages what is already there: an entry that the new search
+ * neither stores nor finds may be overwritten by it whatever its depth, while
+ * entries it does use are renewed. So the table's fixed footprint fills with
+ * the positions used most recently, instead of with deep results of games
+ * long over.
+ *
+ * Searches are numbered in 16 bits of each entry, so the number wraps
+ * around every 65536 searches. So that an entry left alone that long never
+ * passes for a current one, every 32768 searches the table is swept, and
+ * entries older than 16384 searches are set back to exactly that age. No
+ * entry then grows older than 49152 searches between sweeps, far from
+ * wrapping around.
+ *
+ * The table may be shared by several searching threads without locking. The
+ * key array holds <code>key ^ data</code> rather than the key itself, so an
+ * entry whose two halves were written by different threads fails the check in
+ * {@link #probe} and is treated as a miss instead of returning wrong data.
+ */
+public final class TranspositionTable {
+	/**
+	 * How to decide whether a new entry may overwrite the one in its slot.
+	 */
+	public enum Replacement {
+		/** Keep whichever entry was searched deeper, unless the old one went unused since the last {@link #newSearch}. */
+		DEPTH_PREFERRED,
+
+		/** Always overwrite with the newest entry. */
+		ALWAYS_REPLACE
+	}
+
+	/** Bound types: the stored value is exact, a lower bound, or an upper bound. */
+	public static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+	/** The size used when none is given. */
+	public static final int DEFAULT_MEGABYTES = 16;
+
+	private static final int ENTRY_BYTES = 16;
+	private static final int DEPTH_SHIFT = 32, BOUND_SHIFT = 40, MOVE_SHIFT = 42, GENERATION_SHIFT = 48;
+	private static final long GENERATION_BITS = 0xFFFFL << GENERATION_SHIFT;
+	private static final long GENERATION_ONE = 1L << GENERATION_SHIFT;
+	private static final int SWEEP_PERIOD = 1 << 15;  // searches between sweeps
+	private static final long OLD_AGE = 1L << 14;     // the age a sweep sets older entries to
+
+	private final long[] keys; // key ^ data
+	private final long[] data;
+	private final int shift;
+	private final Replacement replacement;
+	private volatile long generation; // the current search's number, in place in an entry
+
+	/**
+	 * Constructs a depth-preferred table of the default size.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_MEGABYTES, Replacement.DEPTH_PREFERRED);
+	}
+
+	/**
+	 * Constructs a table.
+	 * @param megabytes the most memory the table may use. The number of
+	 * entries is rounded down to a power of two.
+	 * @param replacement the replacement policy
+	 */
+	public TranspositionTable(int megabytes, Replacement replacement) {
+		if (megabytes < 1) throw new IllegalArgumentException("Table size must be at least 1 MB, not " +megabytes);
+		long entries = Long.highestOneBit(((long)megabytes << 20) / ENTRY_BYTES);
+		entries = Math.min(entries, 1 << 30); // the largest power-of-two array length
+		int bits = Long.numberOfTrailingZeros(entries);
+
+		keys = new long[(int)entries];
+		data = new long[(int)entries];
+		shift = 64 - bits;
+		this.replacement = replacement;
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param key the position key
+	 * @return the packed entry, or 0 if the position is not in the table. Use
+	 * {@link #value}, {@link #depth}, {@link #bound} and {@link #move} to unpack it.
+	 */
+	public long probe(long key) {
+		int index = index(key);
+		long entry = data[index];
+		if (entry == 0 || (keys[index] ^ entry) != key) return 0;
+		long current = generation;
+		if ((entry & GENERATION_BITS) != current) { // renew an entry of an earlier search
+			entry = (entry & ~GENERATION_BITS) | current;
+			keys[index] = key ^ entry;
+			data[index] = entry;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores a search result, if the replacement policy allows it.
+	 * @param key the position key
+	 * @param value the value found
+	 * @param depth the number of plies that were searched below the position (0-255)
+	 * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param move the best column found, or -1 for none
+	 * @throws IllegalArgumentException if the depth doesn't fit in an entry
+	 */
+	public void store(long key, int value, int depth, int bound, int move) {
+		if ((depth & ~0xFF) != 0) throw new IllegalArgumentException("Depth must be 0-255, not " +depth);
+		int index = index(key);
+		long current = generation;
+		if (replacement == Replacement.DEPTH_PREFERRED) {
+			long old = data[index];
+			if (old != 0 && (keys[index] ^ old) != key && (old & GENERATION_BITS) == current && depth(old) > depth) return;
+		}
+
+		long entry = (value & 0xFFFFFFFFL)
+				| ((long)depth << DEPTH_SHIFT)
+				| ((long)bound << BOUND_SHIFT)
+				| ((long)(move+1) << MOVE_SHIFT)
+				| current;
+		keys[index] = key ^ entry;
+		data[index] = entry;
+	}
+
+	/**
+	 * Starts a new search, making the entries already in the table older
+	 * than the ones it will store or find. Searches sharing the table may
+	 * call it at any time; their entries are renewed as they find them.
+	 */
+	public void newSearch() {
+		long next = (generation + GENERATION_ONE) & GENERATION_BITS;
+		generation = next;
+		if ((next >>> GENERATION_SHIFT) % SWEEP_PERIOD == 0) sweep(next);
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(data, 0L);
+	}
+
+	/**
+	 * Returns the number of entries the table can hold.
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return data.length;
+	}
+
+	/**
+	 * Returns the value of a packed entry.
+	 * @param entry an entry returned by {@link #probe}
+	 * @return the value
+	 */
+	public static int value(long entry) {
+		return (int)entry;
+	}
+
+	/**
+	 * Returns the depth of a packed entry.
+	 * @param entry an entry returned by {@link #probe}
+	 * @return the number of plies searched
+	 */
+	public static int depth(long entry) {
+		return (int)(entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * Returns the bound type of a packed entry.
+	 * @param entry an entry returned by {@link #probe}
+	 * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 */
+	public static int bound(long entry) {
+		return (int)(entry >>> BOUND_SHIFT) & 0x3;
+	}
+
+	/**
+	 * Returns the best move of a packed entry.
+	 * @param entry an entry returned by {@link #probe}
+	 * @return the column, or -1 for none
+	 */
+	public static int move(long entry) {
+		return ((int)(entry >>> MOVE_SHIFT) & 0x3F) - 1;
+	}
+
+	// sets entries older than OLD_AGE back to it; a store racing with this leaves a torn entry, which reads as a miss
+	private void sweep(long current) {
+		long old = (current - OLD_AGE*GENERATION_ONE) & GENERATION_BITS;
+		for (int i = 0; i < data.length; i++) {
+			long entry = data[i];
+			if (entry == 0) continue;
+			long age = ((current - (entry & GENERATION_BITS)) & GENERATION_BITS) >>> GENERATION_SHIFT;
+			if (age <= OLD_AGE) continue;
+			long key = keys[i] ^ entry;
+			entry = (entry & ~GENERATION_BITS) | old;
+			keys[i] = key ^ entry;
+			data[i] = entry;
+		}
+	}
+
+	// spreads the key bits over the index (Fibonacci hashing)
+	private int index(long key) {
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+}
@@ -0,0 +1,142 @@
+package tools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import players.ComputerConnectFourPlayer;
+import players.Position;
+import players.PositionDatabase;
+import players.Solver;
+import players.TranspositionTable;
+
+/**
+ * Writes an opening book: every position reachable in up to a given number
+ * of plies, with its best move. Positions are either solved exactly or
+ * searched to a fixed depth with alpha-beta; solving is what makes a book
+ * play perfectly, but it takes far longer.
+ *
+ * Usage: java tools.OpeningBookGenerator file plies [depth] [threads] [root moves]
+ * <ul>
+ * <li>depth: 0 (the default) to solve every position, or the number of plies to search</li>
+ * <li>root moves: build the book below this position instead of the empty board, e.g. "44"</li>
+ * </ul>
+ */
+public class OpeningBookGenerator {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java tools.OpeningBookGenerator file plies [depth] [threads] [root moves]");
+			System.exit(1);
+		}
+		Path file = Paths.get(args[0]);
+		int plies = Integer.parseInt(args[1]);
+		int depth = (args.length >= 3) ? Integer.parseInt(args[2]) : 0;
+		int threads = (args.length >= 4) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		Position root = Position.fromMoves((args.length >= 5) ? args[4] : "");
+
+		long start = System.nanoTime();
+		PositionDatabase.Builder book = generate(root, plies, depth, threads);
+		book.write(file);
+		System.out.printf("%d positions written to %s in %.1f s%n", book.size(), file, (System.nanoTime() - start)/1e9);
+	}
+
+	/**
+	 * Finds the best move of every position up to some plies past a root.
+	 * @param root the first position
+	 * @param plies the number of plies past the root to include
+	 * @param depth 0 to solve the positions, or the number of plies to search
+	 * @param threads the number of positions to work on at once
+	 * @return the book, ready to write
+	 */
+	public static PositionDatabase.Builder generate(Position root, int plies, int depth, int threads) {
+		List<Position> positions = reachable(root, plies);
+		PositionDatabase.Builder book = new PositionDatabase.Builder(root.getWidth(), root.getHeight(), root.getConnect(), depth == 0);
+
+		// one solver or player per thread, as neither is thread-safe, all sharing one table
+		TranspositionTable table = (depth == 0)
+				? new TranspositionTable(Solver.DEFAULT_MEGABYTES, TranspositionTable.Replacement.DEPTH_PREFERRED)
+				: new TranspositionTable();
+		ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> new Solver(table));
+		ThreadLocal<ComputerConnectFourPlayer> players = ThreadLocal.withInitial(() -> {
+			ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(depth, (byte)1);
+			player.setConnectLength(root.getConnect());
+			player.setTranspositionTable(table);
+			return player;
+		});
+		AtomicInteger done = new AtomicInteger();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			// deepest first: they are the cheapest, and they warm up the tables for the rest
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = positions.size()-1; i >= 0; i--) {
+				Position position = positions.get(i);
+				futures.add(pool.submit(() -> {
+					if (depth == 0) {
+						Solver solver = solvers.get();
+						int move = solver.bestMove(position);
+						book.put(position, solver.solve(position), move); // cheap: the moves are in the table now
+					}
+					else {
+						book.put(position, 0, players.get().getNextPlay(position.toRack(1)));
+					}
+					int count = done.incrementAndGet();
+					if (count % 1000 == 0) System.out.println(count+ " / " +positions.size());
+				}));
+			}
+			for (Future<?> future : futures) waitFor(future);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return book;
+	}
+
+	// every position up to some plies past the root where the game isn't over, one of each mirrored pair, shallowest first
+	private static List<Position> reachable(Position root, int plies) {
+		List<Position> positions = new ArrayList<Position>();
+		Set<Long> seen = new HashSet<Long>();
+		List<Position> layer = new ArrayList<Position>();
+		layer.add(new Position(root));
+		seen.add(root.canonicalKey());
+		for (int ply = 0; ply <= plies && !layer.isEmpty(); ply++) {
+			positions.addAll(layer);
+			List<Position> next = new ArrayList<Position>();
+			if (ply < plies) {
+				for (Position position : layer) {
+					for (int c = 0; c < position.getWidth(); c++) {
+						if (!position.canPlay(c) || position.isWinningMove(c)) continue;
+						Position child = new Position(position);
+						child.play(c);
+						if (!child.isFull() && seen.add(child.canonicalKey())) next.add(child);
+					}
+				}
+			}
+			layer = next;
+		}
+		return positions;
+	}
+
+	// waits for one position, passing on its failure
+	private static void waitFor(Future<?> future) {
+		try {
+			future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Book generation interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Book generation failed", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package tools;
+
+import players.ComputerConnectFourPlayer;
+import players.Position;
+import players.SearchMode;
+import players.TranspositionTable;
+
+/**
+ * Times the parallel alpha-beta search against the single-threaded searches
+ * on the reference positions, and prints the speedups.
+ *
+ * Usage: java tools.ParallelSpeedup [threads] [depth]
+ */
+public class ParallelSpeedup {
+	public static void main(String[] args) {
+		int threads = (args.length >= 1) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int depth = (args.length >= 2) ? Integer.parseInt(args[1]) : 8;
+		String[] positions = ReferencePositions.all();
+
+		System.out.println("depth " +depth+ ", " +threads+ " threads");
+		System.out.printf("%-36s %12s %12s %12s %9s %9s%n", "position", "miniMax ms", "1 thread ms", "parallel ms", "vs mm", "vs 1 thr");
+
+		long totalMiniMax = 0, totalSingle = 0, totalParallel = 0;
+		for (String moves : positions) {
+			long miniMax = search(moves, depth, SearchMode.MINIMAX, 1);
+			long single = search(moves, depth, SearchMode.ALPHA_BETA, 1);
+			long parallel = search(moves, depth, SearchMode.ALPHA_BETA, threads);
+			totalMiniMax += miniMax;
+			totalSingle += single;
+			totalParallel += parallel;
+			printRow(moves, miniMax, single, parallel);
+		}
+		printRow("total", totalMiniMax, totalSingle, totalParallel);
+	}
+
+	// runs one search and returns the time it took, in nanoseconds. The same search is run once untimed first, so
+	// that neither the JIT nor making the player's table and starting its threads is timed: a MINIMAX player has
+	// no table or threads, and this would bias the speedups against the others
+	private static long search(String moves, int depth, SearchMode mode, int threads) {
+		Position position = Position.fromMoves(moves);
+		byte side = (byte)((position.getMoves() % 2 == 0) ? 1 : -1);
+		byte[][] rack = position.toRack(side);
+
+		ComputerConnectFourPlayer player = new ComputerConnectFourPlayer(depth, side, mode);
+		player.setThreads(threads);
+		TranspositionTable table = player.getTranspositionTable();
+		player.getNextPlay(rack); // starts the pool's threads; then forget what it learned, so the timed search starts cold
+		if (table != null) table.clear();
+		player.resetMoveOrdering();
+
+		long start = System.nanoTime();
+		player.getNextPlay(rack);
+		long time = System.nanoTime() - start;
+		player.setThreads(1); // releases the pool's threads
+		return time;
+	}
+
+	// prints the times of one position, and the parallel search's speedups
+	private static void printRow(String name, long miniMax, long single, long parallel) {
+		System.out.printf("%-36s %12.1f %12.1f %12.1f %8.1fx %8.1fx%n", name,
+				miniMax/1e6, single/1e6, parallel/1e6,
+				(double)miniMax/parallel, (double)single/parallel);
+	}
+}
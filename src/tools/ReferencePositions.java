@@ -0,0 +1,54 @@
+package tools;
+
+/**
+ * A fixed set of positions used to measure and compare the computer players.
+ * Each one is the list of columns played from the empty standard board,
+ * numbered from 1 (see players.Position.fromMoves). None of them is over,
+ * and in none of them can the side to move win at once.
+ */
+public final class ReferencePositions {
+	/** Positions 4-8 plies into the game. */
+	public static final String[] OPENING = {
+		"4363355",
+		"55465463",
+		"44332",
+		"16114344",
+		"2434276",
+		"554611",
+	};
+
+	/** Positions 14-20 plies into the game. */
+	public static final String[] MIDGAME = {
+		"55465445643226",
+		"42336115123625",
+		"64434126444162211635",
+		"443312242123324",
+		"72441125452656",
+		"4432371673752425",
+	};
+
+	/** Positions 28-34 plies into the game. */
+	public static final String[] ENDGAME = {
+		"327256135325153152366311524217",
+		"4153764114251566544511254772",
+		"443721353374576215425737761161622",
+		"4423471323362231441672247667",
+		"463234236242636634422361545717777",
+		"1114453313113376744647656642272",
+	};
+
+	private ReferencePositions() {
+	}
+
+	/**
+	 * Returns every position in the set: opening, then midgame, then endgame.
+	 * @return the move lists
+	 */
+	public static String[] all() {
+		String[] all = new String[OPENING.length + MIDGAME.length + ENDGAME.length];
+		System.arraycopy(OPENING, 0, all, 0, OPENING.length);
+		System.arraycopy(MIDGAME, 0, all, OPENING.length, MIDGAME.length);
+		System.arraycopy(ENDGAME, 0, all, OPENING.length + MIDGAME.length, ENDGAME.length);
+		return all;
+	}
+}
@@ -0,0 +1,143 @@
+package tools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import players.Position;
+import players.PositionDatabase;
+import players.Solver;
+
+/**
+ * Writes an endgame tablebase: the exact score and best move of positions
+ * with at most a given number of empty cells.
+ *
+ * There are far too many such positions on the standard board to list them
+ * all, so the tablebase covers the endgames of sampled games: random games
+ * are played until only the given number of cells are empty, and every
+ * position below each of those is solved. On a small board with as many
+ * empty cells as the board has, that is every position of the game.
+ *
+ * Usage: java tools.TablebaseGenerator file empty [games] [threads] [seed] [width height [connect]]
+ */
+public class TablebaseGenerator {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java tools.TablebaseGenerator file empty [games] [threads] [seed] [width height [connect]]");
+			System.exit(1);
+		}
+		Path file = Paths.get(args[0]);
+		int empty = Integer.parseInt(args[1]);
+		int games = (args.length >= 3) ? Integer.parseInt(args[2]) : 1000;
+		int threads = (args.length >= 4) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long seed = (args.length >= 5) ? Long.parseLong(args[4]) : 1;
+		Position board = new Position();
+		if (args.length >= 7) {
+			int connect = (args.length >= 8) ? Integer.parseInt(args[7]) : Position.CONNECT;
+			board = new Position(Integer.parseInt(args[5]), Integer.parseInt(args[6]), connect);
+		}
+
+		long start = System.nanoTime();
+		PositionDatabase.Builder tablebase = generate(board, empty, games, threads, seed);
+		tablebase.write(file);
+		System.out.printf("%d positions written to %s in %.1f s%n", tablebase.size(), file, (System.nanoTime() - start)/1e9);
+	}
+
+	/**
+	 * Solves every position below the endgames of some random games.
+	 * @param board the empty board
+	 * @param empty the most empty cells a position may have
+	 * @param games the number of random games to take endgames from
+	 * @param threads the number of positions to solve at once
+	 * @param seed the seed of the random games
+	 * @return the tablebase, ready to write
+	 */
+	public static PositionDatabase.Builder generate(Position board, int empty, int games, int threads, long seed) {
+		List<Position> positions = endgames(board, empty, games, new Random(seed));
+		PositionDatabase.Builder tablebase = new PositionDatabase.Builder(board.getWidth(), board.getHeight(), board.getConnect(), true);
+
+		// one solver per thread, as solvers aren't thread-safe
+		ThreadLocal<Solver> solvers = ThreadLocal.withInitial(Solver::new);
+		AtomicInteger done = new AtomicInteger();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (Position position : positions) {
+				futures.add(pool.submit(() -> {
+					Solver solver = solvers.get();
+					int move = solver.bestMove(position);
+					tablebase.put(position, solver.solve(position), move); // cheap: the moves are in the table now
+					int count = done.incrementAndGet();
+					if (count % 10000 == 0) System.out.println(count+ " / " +positions.size());
+				}));
+			}
+			for (Future<?> future : futures) waitFor(future);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return tablebase;
+	}
+
+	// every position where the game isn't over, below the point where random games reach the given number of empty cells
+	private static List<Position> endgames(Position board, int empty, int games, Random random) {
+		List<Position> positions = new ArrayList<Position>();
+		Set<Long> seen = new HashSet<Long>();
+		int cells = board.getWidth()*board.getHeight();
+		for (int game = 0; game < games; game++) {
+			Position position = new Position(board);
+			while (position != null && cells - position.getMoves() > empty) position = randomMove(position, random);
+			if (position != null) addBelow(position, positions, seen);
+		}
+		return positions;
+	}
+
+	// plays a random move that doesn't end the game; null if there is none
+	private static Position randomMove(Position position, Random random) {
+		int[] columns = new int[position.getWidth()];
+		int count = 0;
+		for (int c = 0; c < position.getWidth(); c++) {
+			if (position.canPlay(c) && !position.isWinningMove(c)) columns[count++] = c;
+		}
+		if (count == 0) return null;
+		position.play(columns[random.nextInt(count)]);
+		return position.isFull() ? null : position;
+	}
+
+	// adds a position and every position below it where the game isn't over, unless it or its mirror image was seen already
+	private static void addBelow(Position position, List<Position> positions, Set<Long> seen) {
+		if (!seen.add(position.canonicalKey())) return;
+		positions.add(new Position(position));
+		for (int c = 0; c < position.getWidth(); c++) {
+			if (!position.canPlay(c) || position.isWinningMove(c)) continue;
+			position.play(c);
+			if (!position.isFull()) addBelow(position, positions, seen);
+			position.undo(c);
+		}
+	}
+
+	// waits for one position, passing on its failure
+	private static void waitFor(Future<?> future) {
+		try {
+			future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tablebase generation interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Tablebase generation failed", e.getCause());
+		}
+	}
+}